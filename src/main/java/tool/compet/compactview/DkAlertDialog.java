@@ -4,35 +4,38 @@
 
 package tool.compet.compactview;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.graphics.Color;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextUtils;
 import android.text.method.ScrollingMovementMethod;
+import android.util.SparseArray;
+import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.Interpolator;
+import android.widget.FrameLayout;
+import android.widget.ListView;
 import android.widget.TextView;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.core.view.ViewCompat;
-import androidx.core.view.animation.PathInterpolatorCompat;
+import androidx.databinding.DataBindingUtil;
 import androidx.databinding.ViewDataBinding;
 import androidx.lifecycle.ViewModel;
 
-import tool.compet.compactview.databinding.DkConfirmDialogHorizonalActionsBinding;
-import tool.compet.compactview.databinding.DkConfirmDialogVerticalActionsBinding;
 import tool.compet.core.DkConfig;
 import tool.compet.core.TheDialogFragment;
 import tool.compet.animation.DkAnimationConfiguration;
-import tool.compet.animation.DkLookupTableInterpolator;
 import tool.compet.graphics.DkDrawables;
 import tool.compet.core.DkRunner;
 import tool.compet.core.DkRunner2;
@@ -62,6 +65,11 @@ public class DkAlertDialog
 	public static final int LAYOUT_TYPE_HORIZONTAL_ACTIONS = 0;
 	public static final int LAYOUT_TYPE_VERTICAL_ACTIONS = 1;
 	protected int layoutType = LAYOUT_TYPE_VERTICAL_ACTIONS;
+	// Build layout in code (one flat view group) instead of inflating from xml
+	protected boolean isProgrammaticLayout; // store in instance state
+	// Draw whole content in one view (`DkLiteAlertView`) instead of view hierarchy
+	protected boolean isLiteLayout; // store in instance state
+	protected DkLiteAlertView vLite;
 
 	// Click listener for action-buttons
 	private DkRunner onCancel;
@@ -95,6 +103,9 @@ public class DkAlertDialog
 
 	protected ViewGroup vBody;
 	protected int bodyLayoutResId; // store in instance state
+	private DkRunner2<DkAlertDialog, View> onBindBody;
+	// Inflated custom body views of this dialog (layout id -> body view), reused when switch body view
+	private SparseArray<View> bodyViews;
 	protected float widthPercent = 0.85f; // store in instance state
 	protected float heightPercent; // store in instance state
 	protected boolean dimensionRatioBasedOnWidth = true; // store in instance state
@@ -103,8 +114,17 @@ public class DkAlertDialog
 	// Content: message
 	protected TextView vMessage;
 	protected int messageTextResId; // store in instance state
-	protected String message; // store in instance state
+	protected String message; // store in instance state (in view model when large)
 	protected Integer messageBackgroundColor; // store in instance state
+	// Show message in a list of chunks (only visible chunks are laid out), for very large message
+	public static final int STREAMING_MESSAGE_MIN_LENGTH = 8 * 1024;
+	// Message which has at least this length will be measured at background
+	private static final int PRECOMPUTE_MESSAGE_MIN_LENGTH = 512;
+	protected boolean isStreamingMessage; // store in instance state
+	private ListView vMessageList;
+	private TheAlertDialogMessageAdapter messageAdapter;
+	// Whole message (includes appended text) after `appendMessage()`, grows in place instead of `message`
+	private StringBuilder messageBuilder;
 
 	/**
 	 * Footer
@@ -133,27 +153,57 @@ public class DkAlertDialog
 	public static final int ANIM_ZOOM_IN_OUT = 1;
 	// Like as spring mocks a ball which is pulling down
 	public static final int ANIM_SWIPE_DOWN = 2;
+	// Zoom with physics spring (keeps velocity when interrupted)
+	public static final int ANIM_SPRING = 3;
 
-	private ValueAnimator animator;
+	private boolean isExiting; // whether exit animation is running
 	private boolean enableEnterAnimation = true; // whether has animation when show dialog
 	private boolean enableExitAnimation; // whether has animation when dismiss dialog
 	private int enterAnimationType = ANIM_ZOOM_IN_OUT;
 	private int exitAnimationType = -1;
 
-	private Interpolator animInterpolator;
-	private Interpolator defaultEnterAnimInterpolator;
-	private Interpolator exitAnimInterpolator;
+	// Scheduler which is showing this dialog (null if this was opened directly)
+	DkDialogScheduler scheduler;
 
-	private DkRunner2<ValueAnimator, View> animUpdater;
+	private boolean isInstanceStateRestored;
+	private NonConfigState nonConfigState;
 
 	@Override
 	public int layoutResourceId() {
-		if (this.layoutType == LAYOUT_TYPE_VERTICAL_ACTIONS) {
+		return layoutResourceId(this.layoutType);
+	}
+
+	private static int layoutResourceId(int layoutType) {
+		if (layoutType == LAYOUT_TYPE_VERTICAL_ACTIONS) {
 			return R.layout.dk_confirm_dialog_vertical_actions;
 		}
 		return R.layout.dk_confirm_dialog_horizonal_actions;
 	}
 
+	/**
+	 * Pre-inflate layout of given type at background, so next dialogs (which are shown in same context)
+	 * can use it without inflation at main thread. Call this at main thread, for eg,. at `onCreate()` of activity.
+	 *
+	 * @param context Context which dialog will be shown in, normally it is the activity.
+	 * @param layoutType One of `LAYOUT_TYPE_HORIZONTAL_ACTIONS`, `LAYOUT_TYPE_VERTICAL_ACTIONS`.
+	 * @param count Number of layouts to be prepared.
+	 */
+	public static void warmUp(Context context, int layoutType, int count) {
+		TheAlertDialogLayoutPool.warmUp(context, layoutResourceId(layoutType), count);
+	}
+
+	/**
+	 * Pre-inflate custom body view at background, so next dialogs can set it via `setBodyView(layoutResId, onBindBody)`
+	 * without inflation at main thread. Call this at main thread.
+	 *
+	 * @param context Context which dialog will be shown in, normally it is the activity.
+	 * @param layoutResId Layout of body view.
+	 * @param count Number of body views to be prepared.
+	 */
+	public static void warmUpBodyView(Context context, int layoutResId, int count) {
+		TheAlertDialogLayoutPool.warmUp(context, layoutResId, count);
+	}
+
 	// By default, dialog will not support container for fragment-transaction
 	// To enable it, subclass must re-define this function
 	@Override
@@ -165,43 +215,39 @@ public class DkAlertDialog
 	public void onCreate(@Nullable Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
-		this.restoreInstanceState(savedInstanceState);
+		// Restore only one time per lifecycle, onViewStateRestored() will not restore again
+		if (! this.isInstanceStateRestored) {
+			this.isInstanceStateRestored = true;
+			this.restoreInstanceState(savedInstanceState);
+		}
 	}
 
 	@CallSuper
 	protected void restoreInstanceState(@Nullable Bundle savedInstanceState) {
 		if (savedInstanceState != null) {
-			this.cancelable = savedInstanceState.getBoolean("DkConfirmDialog.cancelable", false);
-
-			this.backgroundColor = savedInstanceState.getInt("DkConfirmDialog.backgroundColor");
-
-			this.iconResId = savedInstanceState.getInt("DkConfirmDialog.iconResId");
-			this.titleTextResId = savedInstanceState.getInt("DkConfirmDialog.titleTextResId");
-			this.title = savedInstanceState.getCharSequence("DkConfirmDialog.title");
-			this.subTitleTextResId = savedInstanceState.getInt("DkConfirmDialog.subTitleTextResId");
-			this.headerBackgroundColor = savedInstanceState.getInt("DkConfirmDialog.headerBackgroundColor");
-
-			this.bodyLayoutResId = savedInstanceState.getInt("DkConfirmDialog.bodyLayoutResId");
-			this.widthPercent = savedInstanceState.getFloat("DkConfirmDialog.widthWeight");
-			this.heightPercent = savedInstanceState.getFloat("DkConfirmDialog.heightWeight");
-
-			this.messageTextResId = savedInstanceState.getInt("DkConfirmDialog.messageTextResId");
-			this.message = savedInstanceState.getString("DkConfirmDialog.message");
-			this.messageBackgroundColor = savedInstanceState.getInt("DkConfirmDialog.messageBackgroundColor");
-
-			this.cancelTextResId = savedInstanceState.getInt("DkConfirmDialog.cancelTextResId");
-			this.resetTextResId = savedInstanceState.getInt("DkConfirmDialog.resetTextResId");
-			this.okTextResId = savedInstanceState.getInt("DkConfirmDialog.okTextResId");
-
-			this.isDismissOnClickButton = savedInstanceState.getBoolean("DkConfirmDialog.isDismissOnClickButton");
-			this.isDismissOnTouchOutside = savedInstanceState.getBoolean("DkConfirmDialog.isDismissOnTouchOutside");
-			this.isFullScreen = savedInstanceState.getBoolean("DkConfirmDialog.isFullScreen");
+			final InstanceState state = savedInstanceState.getParcelable(InstanceState.KEY);
+			if (state != null) {
+				state.applyTo(this);
+			}
 
-			final NonConfigState ncs = obtainOwnViewModel(NonConfigState.class.getName(), NonConfigState.class);
+			final NonConfigState ncs = nonConfigState();
 			this.backgroundDrawable = ncs.backgroundDrawable;
 			this.onCancel = ncs.onCancel;
 			this.onReset = ncs.onReset;
 			this.onOk = ncs.onOk;
+			this.onBindBody = ncs.onBindBody;
+			// Large message was kept in memory instead of the Bundle
+			if (ncs.message instanceof StringBuilder) {
+				this.messageBuilder = (StringBuilder) ncs.message;
+			}
+			else if (ncs.message != null) {
+				this.message = ncs.message.toString();
+			}
+
+			// This is re-created instance of the dialog which was shown by scheduler
+			if (this.scheduler == null && ncs.scheduler != null) {
+				ncs.scheduler.onDialogRecreated(this);
+			}
 		}
 	}
 
@@ -214,58 +260,24 @@ public class DkAlertDialog
 
 	@CallSuper
 	protected void storeInstanceState(@NonNull Bundle outState) {
-		outState.putBoolean("DkConfirmDialog.cancelable", cancelable);
-
-		if (this.backgroundColor != null) {
-			outState.putInt("DkConfirmDialog.backgroundColor", this.backgroundColor);
-		}
-
-		outState.putInt("DkConfirmDialog.iconResId", this.iconResId);
-		outState.putInt("DkConfirmDialog.titleTextResId", this.titleTextResId);
-		outState.putCharSequence("DkConfirmDialog.title", this.title);
-		outState.putInt("DkConfirmDialog.subTitleTextResId", this.subTitleTextResId);
-		outState.putInt("DkConfirmDialog.headerBackgroundColor", this.headerBackgroundColor);
-
-		if (this.bodyLayoutResId > 0) {
-			outState.putInt("DkConfirmDialog.bodyLayoutResId", this.bodyLayoutResId);
-		}
-		if (this.widthPercent > 0) {
-			outState.putFloat("DkConfirmDialog.widthWeight", this.widthPercent);
-		}
-		if (this.heightPercent > 0) {
-			outState.putFloat("DkConfirmDialog.heightWeight", this.heightPercent);
-		}
-
-		if (this.messageTextResId > 0) {
-			outState.putInt("DkConfirmDialog.messageTextResId", this.messageTextResId);
-		}
-		if (this.message != null) {
-			outState.putString("DkConfirmDialog.message", this.message);
-		}
-		if (this.messageBackgroundColor != null) {
-			outState.putInt("DkConfirmDialog.messageBackgroundColor", this.messageBackgroundColor);
-		}
-
-		outState.putInt("DkConfirmDialog.cancelTextResId", this.cancelTextResId);
-		outState.putInt("DkConfirmDialog.resetTextResId", this.resetTextResId);
-		outState.putInt("DkConfirmDialog.okTextResId", this.okTextResId);
-
-		outState.putBoolean("DkConfirmDialog.isDismissOnClickButton", this.isDismissOnClickButton);
-		outState.putBoolean("DkConfirmDialog.isDismissOnTouchOutside", this.isDismissOnTouchOutside);
-		outState.putBoolean("DkConfirmDialog.isFullScreen", this.isFullScreen);
+		outState.putParcelable(InstanceState.KEY, new InstanceState(this));
 
-		final NonConfigState ncs = obtainOwnViewModel(NonConfigState.class.getName(), NonConfigState.class);
+		final NonConfigState ncs = nonConfigState();
 		ncs.backgroundDrawable = this.backgroundDrawable;
 		ncs.onCancel = this.onCancel;
 		ncs.onReset = this.onReset;
 		ncs.onOk = this.onOk;
+		ncs.onBindBody = this.onBindBody;
+		ncs.scheduler = this.scheduler;
+		ncs.message = isLargeMessage() ? obtainMessage() : null;
 	}
 
-	@Override // onViewCreated() -> onViewStateRestored() -> onStart()
-	public void onViewStateRestored(@Nullable Bundle savedInstanceState) {
-		super.onViewStateRestored(savedInstanceState);
-
-		this.restoreInstanceState(savedInstanceState);
+	// Lookup view model only one time per instance
+	private NonConfigState nonConfigState() {
+		if (this.nonConfigState == null) {
+			this.nonConfigState = obtainOwnViewModel(NonConfigState.class.getName(), NonConfigState.class);
+		}
+		return this.nonConfigState;
 	}
 
 	@Override
@@ -275,41 +287,168 @@ public class DkAlertDialog
 		// header = title + subtitle
 		// content = custom-view || message
 		// footer = buttons
-		final View layout = super.onCreateView(inflater, container, savedInstanceState);
-
-		// We have to init views since we have different layouts
-		if (this.binder instanceof DkConfirmDialogHorizonalActionsBinding) {
-			final DkConfirmDialogHorizonalActionsBinding binder = (DkConfirmDialogHorizonalActionsBinding) this.binder;
-			this.vContent = binder.dkBackground;
-			this.vBody = binder.dkBody;
-
-			this.vHeader = binder.dkHeader;
-			this.vTitle = binder.dkTitle;
-			this.vMessage = binder.dkMessage;
-			this.vCancel = binder.dkCancel;
-			this.vReset = binder.dkReset;
-			this.vOk = binder.dkOk;
-		}
-		else if (this.binder instanceof DkConfirmDialogVerticalActionsBinding) {
-			final DkConfirmDialogVerticalActionsBinding binder = (DkConfirmDialogVerticalActionsBinding) this.binder;
-			this.vContent = binder.dkBackground;
-			this.vBody = binder.dkBody;
-
-			this.vHeader = binder.dkHeader;
-			this.vTitle = binder.dkTitle;
-			this.vMessage = binder.dkMessage;
-			this.vCancel = binder.dkCancel;
-			this.vReset = binder.dkReset;
-			this.vOk = binder.dkOk;
+		final View layout;
+		final View pooledLayout = this.isProgrammaticLayout || this.isLiteLayout ? null : TheAlertDialogLayoutPool.acquire(inflater.getContext(), layoutResourceId());
+
+		// Build layout in code, or use pre-inflated layout if has, otherwise inflate as normal
+		if (this.isLiteLayout) {
+			layout = buildLiteLayout(inflater.getContext());
+			this.layout = (ViewGroup) layout;
+		}
+		else if (this.isProgrammaticLayout) {
+			layout = TheAlertDialogFlatLayout.buildDialogLayout(inflater.getContext(), this.layoutType == LAYOUT_TYPE_VERTICAL_ACTIONS);
+			this.layout = (ViewGroup) layout;
 		}
+		else if (pooledLayout != null) {
+			this.binder = DataBindingUtil.bind(pooledLayout);
+			this.layout = (ViewGroup) pooledLayout;
+			layout = pooledLayout;
+		}
+		else {
+			layout = super.onCreateView(inflater, container, savedInstanceState);
+		}
+
+		// All layout types have same view ids
+		bindViews(layout);
 
 		return layout;
 	}
 
+	// Dimmed background + lite content
+	private static View buildLiteLayout(Context context) {
+		final FrameLayout root = new FrameLayout(context);
+		root.setId(R.id.root);
+		root.setBackgroundColor(ContextCompat.getColor(context, R.color.semi_transparent_black));
+		root.setClickable(true);
+		root.setFocusable(true);
+
+		final DkLiteAlertView content = new DkLiteAlertView(context);
+		content.setId(R.id.dk_background);
+		root.addView(content, new FrameLayout.LayoutParams(
+			ViewGroup.LayoutParams.MATCH_PARENT,
+			ViewGroup.LayoutParams.WRAP_CONTENT,
+			Gravity.CENTER));
+
+		return root;
+	}
+
+	private void bindViews(View layout) {
+		this.vContent = layout.findViewById(R.id.dk_background);
+		this.vLite = this.vContent instanceof DkLiteAlertView ? (DkLiteAlertView) this.vContent : null;
+		this.vBody = layout.findViewById(R.id.dk_body);
+
+		this.vTitle = layout.findViewById(R.id.dk_title);
+		this.vHeader = layout.findViewById(R.id.dk_header);
+		// Flat layout has no header container
+		if (this.vHeader == null) {
+			this.vHeader = this.vTitle;
+		}
+		this.vMessage = layout.findViewById(R.id.dk_message);
+		this.vCancel = layout.findViewById(R.id.dk_cancel);
+		this.vReset = layout.findViewById(R.id.dk_reset);
+		this.vOk = layout.findViewById(R.id.dk_ok);
+	}
+
+	@Override
+	public void onDestroyView() {
+		final View layout = getView();
+		final boolean reusable = layout != null && isLayoutReusable();
+
+		super.onDestroyView();
+
+		// Return custom body views to the pool, so next dialogs can reuse them
+		releaseBodyViews();
+
+		// Message list was created for the destroyed layout
+		this.vMessageList = null;
+		this.messageAdapter = null;
+
+		// Return the layout to the pool, so next dialog does not need to inflate
+		if (reusable) {
+			resetLayoutForReuse(layout);
+			TheAlertDialogLayoutPool.release(layoutResourceId(), layout);
+		}
+	}
+
+	/**
+	 * Layout which was customized (background, views...) cannot be restored to xml state,
+	 * so it cannot be reused by other dialogs.
+	 */
+	protected boolean isLayoutReusable() {
+		return this.backgroundColor == null
+			&& this.backgroundDrawable == null
+			&& this.messageBackgroundColor == null
+			&& this.vContent != null
+			&& ! this.isProgrammaticLayout
+			&& ! this.isLiteLayout
+			&& getClass() == DkAlertDialog.class;
+	}
+
+	private void releaseBodyViews() {
+		final SparseArray<View> bodyViews = this.bodyViews;
+		if (bodyViews != null) {
+			for (int index = bodyViews.size() - 1; index >= 0; --index) {
+				final View body = bodyViews.valueAt(index);
+				if (body.getParent() == this.vBody) {
+					this.vBody.removeView(body);
+				}
+				// Only body which is re-populated via `onBindBody` is safe to be reused by other dialogs
+				if (this.onBindBody != null) {
+					TheAlertDialogLayoutPool.release(bodyViews.keyAt(index), body);
+				}
+			}
+			this.bodyViews = null;
+		}
+	}
+
+	/**
+	 * Reset views to the state which is same as inflated from xml.
+	 */
+	private void resetLayoutForReuse(View layout) {
+		layout.setOnTouchListener(null);
+
+		TheAlertDialogAnimator.cancel(this.vContent);
+		this.vContent.setScaleX(1f);
+		this.vContent.setScaleY(1f);
+		this.vContent.setTranslationY(0f);
+		this.vContent.setAlpha(1f);
+		final ViewGroup.LayoutParams bkgLayoutParams = this.vContent.getLayoutParams();
+		bkgLayoutParams.width = ViewGroup.LayoutParams.MATCH_PARENT;
+		bkgLayoutParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+		this.vContent.setLayoutParams(bkgLayoutParams);
+
+		// Lite content is fully re-decorated at setup
+		if (this.vLite != null) {
+			return;
+		}
+
+		this.vHeader.setBackgroundColor(Color.TRANSPARENT);
+		this.vTitle.setText(null);
+		this.vTitle.setCompoundDrawables(null, null, null, null);
+		this.vTitle.setVisibility(View.VISIBLE);
+
+		// Custom body view was added instead of message view
+		if (this.vMessage.getParent() != this.vBody) {
+			this.vBody.removeAllViews();
+			this.vBody.addView(this.vMessage);
+		}
+		TheCompactTextPrecomputer.cancel(this.vMessage);
+		this.vMessage.setMovementMethod(null);
+		this.vMessage.setText(null);
+		this.vMessage.setVisibility(View.VISIBLE);
+
+		for (View button : new View[] {this.vCancel, this.vReset, this.vOk}) {
+			button.setOnClickListener(null);
+			button.setVisibility(View.VISIBLE);
+		}
+	}
+
 	@Override
 	public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
 		super.onViewCreated(view, savedInstanceState);
 
+		this.isExiting = false;
+		setContentClickable(true);
 		onSetupLayout(view);
 
 		if (this.enableEnterAnimation) {
@@ -319,9 +458,15 @@ public class DkAlertDialog
 
 	@Override // from View.OnClickListener interface
 	public void onClick(View view) {
-		// Perform callback
-		final int viewId = view.getId();
+		onButtonClick(view.getId(), view);
+	}
 
+	private void onButtonClick(int viewId, View view) {
+		// Dialog is closing, don't perform callback again
+		if (this.isExiting) {
+			return;
+		}
+		// Perform callback
 		if (viewId == R.id.dk_cancel) {
 			onCancelButtonClick(view);
 		}
@@ -338,6 +483,121 @@ public class DkAlertDialog
 		}
 	}
 
+	@Override // from `DkCompactFragment`
+	public boolean close() {
+		// Exit animation is running, dialog will be closed after that
+		if (this.isExiting) {
+			return true;
+		}
+		// Scheduler may show next dialog content in this dialog, so no need to close
+		if (this.scheduler != null && this.scheduler.onDialogClose(this)) {
+			return true;
+		}
+		if (this.enableExitAnimation && this.vContent != null && isResumed()) {
+			this.isExiting = true;
+			// Block clicks on the fading content
+			setContentClickable(false);
+			showExitAnimation(() -> {
+				this.isExiting = false;
+				// Closing may fail (or state was saved), then the dialog stays, so restore its content
+				if (! isAdded() || isStateSaved() || ! super.close()) {
+					restoreContent();
+				}
+			});
+			return true;
+		}
+		return super.close();
+	}
+
+	@Override
+	public void onDestroy() {
+		if (this.scheduler != null && isRemoving()) {
+			this.scheduler.onDialogDestroyed(this);
+		}
+		super.onDestroy();
+	}
+
+	/**
+	 * Whether given dialog will show same content as this dialog (used to de-duplicate dialogs).
+	 */
+	boolean hasSameContent(DkAlertDialog other) {
+		return getClass() == other.getClass()
+			&& this.layoutType == other.layoutType
+			&& this.isProgrammaticLayout == other.isProgrammaticLayout
+			&& this.isLiteLayout == other.isLiteLayout
+			&& this.iconResId == other.iconResId
+			&& this.titleTextResId == other.titleTextResId
+			&& TextUtils.equals(this.title, other.title)
+			&& this.messageTextResId == other.messageTextResId
+			&& TextUtils.equals(this.obtainMessage(), other.obtainMessage())
+			&& this.bodyLayoutResId == other.bodyLayoutResId
+			&& this.cancelTextResId == other.cancelTextResId
+			&& this.resetTextResId == other.resetTextResId
+			&& this.okTextResId == other.okTextResId;
+	}
+
+	/**
+	 * Whether this (showing) dialog can show content of given dialog without new fragment transaction.
+	 */
+	boolean canAdoptContentOf(DkAlertDialog other) {
+		return getClass() == DkAlertDialog.class
+			&& other.getClass() == DkAlertDialog.class
+			&& getView() != null
+			&& this.layoutType == other.layoutType
+			&& this.isProgrammaticLayout == other.isProgrammaticLayout
+			&& this.isLiteLayout == other.isLiteLayout
+			&& this.backgroundColor == null && other.backgroundColor == null
+			&& this.backgroundDrawable == null && other.backgroundDrawable == null
+			&& this.messageBackgroundColor == null && other.messageBackgroundColor == null;
+	}
+
+	/**
+	 * Take content (setting, callbacks) of given dialog, and show it in this dialog.
+	 */
+	void adoptContentOf(DkAlertDialog other) {
+		this.cancelable = other.cancelable;
+		this.onCancel = other.onCancel;
+		this.onReset = other.onReset;
+		this.onOk = other.onOk;
+
+		this.iconResId = other.iconResId;
+		this.titleTextResId = other.titleTextResId;
+		this.title = other.title;
+		this.subTitleTextResId = other.subTitleTextResId;
+		this.headerBackgroundColor = other.headerBackgroundColor;
+		this.titleTextColor = other.titleTextColor;
+
+		this.bodyLayoutResId = other.bodyLayoutResId;
+		this.onBindBody = other.onBindBody;
+		this.widthPercent = other.widthPercent;
+		this.heightPercent = other.heightPercent;
+		this.dimensionRatioBasedOnWidth = other.dimensionRatioBasedOnWidth;
+		this.widthRatio = other.widthRatio;
+		this.heightRatio = other.heightRatio;
+		this.messageTextResId = other.messageTextResId;
+		this.message = other.message;
+		this.messageBuilder = other.messageBuilder;
+		this.isStreamingMessage = other.isStreamingMessage;
+
+		this.cancelTextResId = other.cancelTextResId;
+		this.resetTextResId = other.resetTextResId;
+		this.okTextResId = other.okTextResId;
+
+		this.isDismissOnClickButton = other.isDismissOnClickButton;
+		this.isDismissOnTouchOutside = other.isDismissOnTouchOutside;
+		this.isFullScreen = other.isFullScreen;
+		this.enableEnterAnimation = other.enableEnterAnimation;
+		this.enableExitAnimation = other.enableExitAnimation;
+
+		final View view = getView();
+		resetLayoutForReuse(view);
+		onSetupLayout(view);
+
+		if (this.enableEnterAnimation) {
+			showEnterAnimation();
+		}
+	}
+
 	/**
 	 * By default, this try to perform cancel-callback.
 	 * Subclass can override to customize click event.
@@ -381,23 +641,28 @@ public class DkAlertDialog
 		// Dialog content (rounded corner view)
 		decorContent();
 
-		// Header
-		decorHeader();
-		decorIcon();
-		decorTitle();
+		if (this.vLite != null) {
+			decorLiteView();
+		}
+		else {
+			// Header
+			decorHeader();
+			decorIcon();
+			decorTitle();
 
-		// Body
-		decorBodyView();
+			// Body
+			decorBodyView();
 
-		// Footer
-		this.vCancel.setOnClickListener(this);
-		decorCancelButton();
+			// Footer
+			this.vCancel.setOnClickListener(this);
+			decorCancelButton();
 
-		this.vReset.setOnClickListener(this);
-		decorResetButton();
+			this.vReset.setOnClickListener(this);
+			decorResetButton();
 
-		this.vOk.setOnClickListener(this);
-		decorOkButton();
+			this.vOk.setOnClickListener(this);
+			decorOkButton();
+		}
 
 		// Background (dialog) dimension
 		ViewGroup.LayoutParams bkgLayoutParams = this.vContent.getLayoutParams();
@@ -430,7 +695,7 @@ public class DkAlertDialog
 	 * Subclass can override to customize click event.
 	 */
 	protected void onClickOutside() {
-		if (this.isDismissOnTouchOutside) {
+		if (this.isDismissOnTouchOutside && ! this.isExiting) {
 			this.close();
 		}
 	}
@@ -450,6 +715,7 @@ public class DkAlertDialog
 		if (vTitle != null) {
 			decorIcon();
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -458,6 +724,7 @@ public class DkAlertDialog
 		if (vTitle != null) {
 			decorTitle();
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -466,6 +733,7 @@ public class DkAlertDialog
 		if (vTitle != null) {
 			decorTitle();
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -474,22 +742,62 @@ public class DkAlertDialog
 		if (vTitle != null) {
 			vTitle.setTextColor(titleTextColor);
 		}
+		decorLiteView();
 		return this;
 	}
 
 	public DkAlertDialog setMessage(int messageResId) {
 		this.messageTextResId = messageResId;
+		this.messageBuilder = null;
 		if (vMessage != null) {
 			decorBodyView();
 		}
+		decorLiteView();
 		return this;
 	}
 
 	public DkAlertDialog setMessage(String message) {
 		this.message = message;
+		this.messageBuilder = null;
 		if (vMessage != null) {
 			decorBodyView();
 		}
+		decorLiteView();
+		return this;
+	}
+
+	/**
+	 * Append text to the message. When message is showing in streaming mode, only appended text
+	 * (and last unfinished line) will be laid out.
+	 */
+	public DkAlertDialog appendMessage(CharSequence text) {
+		if (this.messageBuilder == null) {
+			this.messageBuilder = new StringBuilder();
+			if (this.messageTextResId <= 0 && this.message != null) {
+				this.messageBuilder.append(this.message);
+			}
+		}
+		this.messageBuilder.append(text);
+
+		if (this.vMessageList != null && this.vMessageList.getParent() == this.vBody) {
+			this.messageAdapter.appendText(text);
+		}
+		else if (this.vMessage != null) {
+			decorBodyView();
+		}
+		decorLiteView();
+		return this;
+	}
+
+	/**
+	 * Show message in streaming mode: message is split into chunks and only visible chunks are laid out.
+	 * By default, this mode is used automatically when message length is at least `STREAMING_MESSAGE_MIN_LENGTH`.
+	 */
+	public DkAlertDialog setStreamingMessageEnabled(boolean enabled) {
+		this.isStreamingMessage = enabled;
+		if (this.vMessage != null) {
+			decorBodyView();
+		}
 		return this;
 	}
 
@@ -501,6 +809,18 @@ public class DkAlertDialog
 		return this;
 	}
 
+	/**
+	 * Set custom body view. Inflated body views are cached by layout id (in this dialog and across dialogs),
+	 * so the body view given to `onBindBody` may be reused one, caller should re-populate all of its content
+	 * (text, checked state, listeners...). Body view without `onBindBody` is never reused across dialogs.
+	 *
+	 * @param onBindBody Callback to bind data to the body view (after it was attached to the dialog).
+	 */
+	public DkAlertDialog setBodyView(int layoutResId, DkRunner2<DkAlertDialog, View> onBindBody) {
+		this.onBindBody = onBindBody;
+		return setBodyView(layoutResId);
+	}
+
 	public DkAlertDialog setCancelButton(int textRes, DkRunner onCancel) {
 		this.onCancel = onCancel;
 		return setCancelButton(textRes);
@@ -511,6 +831,7 @@ public class DkAlertDialog
 		if (vCancel != null) {
 			decorCancelButton();
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -524,6 +845,7 @@ public class DkAlertDialog
 		if (vReset != null) {
 			decorResetButton();
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -537,6 +859,7 @@ public class DkAlertDialog
 		if (vOk != null) {
 			decorOkButton();
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -606,6 +929,24 @@ public class DkAlertDialog
 		return this;
 	}
 
+	/**
+	 * Build the layout in code as one flat view group (single-pass measure and layout),
+	 * instead of inflating it from xml. Layout type (vertical, horizontal actions) is still respected.
+	 */
+	public DkAlertDialog setProgrammaticLayout(boolean programmaticLayout) {
+		this.isProgrammaticLayout = programmaticLayout;
+		return this;
+	}
+
+	/**
+	 * Draw whole dialog content (icon, title, message, buttons) in one view, which is much cheaper to
+	 * measure, layout and draw than view hierarchy. Custom body view and streaming message are not supported in this mode.
+	 */
+	public DkAlertDialog setLiteLayout(boolean liteLayout) {
+		this.isLiteLayout = liteLayout;
+		return this;
+	}
+
 	public DkAlertDialog asSuccess() {
 		return asColor(SUCCESS);
 	}
@@ -635,6 +976,7 @@ public class DkAlertDialog
 		if (this.vHeader != null) {
 			this.vHeader.setBackgroundColor(color);
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -643,6 +985,7 @@ public class DkAlertDialog
 		if (this.vMessage != null) {
 			this.vMessage.setBackgroundColor(messageBackgroundColor);
 		}
+		decorLiteView();
 		return this;
 	}
 
@@ -654,6 +997,20 @@ public class DkAlertDialog
 		this.enableExitAnimation = enableExitAnimation;
 	}
 
+	/**
+	 * @param animType One of `ANIM_ZOOM_IN_OUT`, `ANIM_SWIPE_DOWN`, `ANIM_SPRING`.
+	 */
+	public void setEnterAnimationType(int animType) {
+		this.enterAnimationType = animType;
+	}
+
+	/**
+	 * @param animType One of `ANIM_ZOOM_IN_OUT`, `ANIM_SWIPE_DOWN`, `ANIM_SPRING`, or -1 to use enter animation type.
+	 */
+	public void setExitAnimationType(int animType) {
+		this.exitAnimationType = animType;
+	}
+
 	// endregion Get/Set
 
 	// region Private
@@ -669,6 +1026,28 @@ public class DkAlertDialog
 		}
 	}
 
+	private void decorLiteView() {
+		final DkLiteAlertView vLite = this.vLite;
+		if (vLite != null) {
+			if (this.titleTextResId > 0) {
+				this.title = this.context.getString(this.titleTextResId);
+			}
+			final CharSequence message = resolveMessage();
+			vLite.setVerticalActions(this.layoutType == LAYOUT_TYPE_VERTICAL_ACTIONS)
+				.setIcon(this.iconResId)
+				.setTitle(this.title)
+				.setTitleTextColor(this.titleTextColor)
+				.setHeaderBackgroundColor(this.headerBackgroundColor)
+				.setMessage(message != null ? message.toString() : null)
+				.setCancelButton(this.cancelTextResId, () -> onButtonClick(R.id.dk_cancel, vLite))
+				.setResetButton(this.resetTextResId, () -> onButtonClick(R.id.dk_reset, vLite))
+				.setOkButton(this.okTextResId, () -> onButtonClick(R.id.dk_ok, vLite));
+			if (this.messageBackgroundColor != null) {
+				vLite.setMessageBackgroundColor(this.messageBackgroundColor);
+			}
+		}
+	}
+
 	private void decorHeader() {
 		if (this.vHeader != null) {
 			this.vHeader.setBackgroundColor(this.headerBackgroundColor);
@@ -713,25 +1092,111 @@ public class DkAlertDialog
 
 	private void decorBodyView() {
 		if (this.vMessage != null && this.vBody != null) {
-			if (this.messageTextResId > 0 || this.message != null) {
+			final CharSequence message = resolveMessage();
+
+			if (message != null) {
+				DkViews.setTextSize(this.vMessage, 1.125f * this.vReset.getTextSize());
+
+				final View messageView;
+				if (isLargeMessage()) {
+					TheCompactTextPrecomputer.cancel(this.vMessage);
+					messageView = obtainMessageList();
+					this.messageAdapter.setText(message);
+				}
+				else {
+					messageView = this.vMessage;
+					this.vMessage.setMovementMethod(ScrollingMovementMethod.getInstance());
+					// Long message is measured at background
+					if (message.length() >= PRECOMPUTE_MESSAGE_MIN_LENGTH) {
+						TheCompactTextPrecomputer.setTextAsync(this.vMessage, message.toString());
+					}
+					else {
+						TheCompactTextPrecomputer.cancel(this.vMessage);
+						this.vMessage.setText(message);
+					}
+					this.vMessage.setVisibility(View.VISIBLE);
+				}
 				if (this.messageBackgroundColor != null) {
-					this.vMessage.setBackgroundColor(this.messageBackgroundColor);
+					messageView.setBackgroundColor(this.messageBackgroundColor);
 				}
-				if (this.messageTextResId > 0) {
-					this.message = this.context.getString(this.messageTextResId);
+				// Other body view was shown before
+				if (messageView.getParent() != this.vBody) {
+					this.vBody.removeAllViews();
+					this.vBody.addView(messageView);
 				}
-				DkViews.setTextSize(this.vMessage, 1.125f * this.vReset.getTextSize());
-				this.vMessage.setMovementMethod(new ScrollingMovementMethod());
-				this.vMessage.setText(this.message);
-				this.vMessage.setVisibility(View.VISIBLE);
 			}
 			else if (this.bodyLayoutResId > 0) {
-				this.vBody.removeAllViews();
-				this.vBody.addView(View.inflate(this.context, this.bodyLayoutResId, null));
+				final View body = obtainBodyView(this.bodyLayoutResId);
+				if (body.getParent() != this.vBody) {
+					this.vBody.removeAllViews();
+					this.vBody.addView(body);
+				}
+				if (this.onBindBody != null) {
+					this.onBindBody.run(this, body);
+				}
 			}
 		}
 	}
 
+	private ListView obtainMessageList() {
+		if (this.vMessageList == null) {
+			final ListView list = this.vMessageList = new ListView(this.context);
+			list.setLayoutParams(new FrameLayout.LayoutParams(
+				ViewGroup.LayoutParams.MATCH_PARENT,
+				ViewGroup.LayoutParams.WRAP_CONTENT));
+			list.setPadding(0, this.vMessage.getPaddingTop(), 0, this.vMessage.getPaddingBottom());
+			list.setClipToPadding(false);
+			list.setDivider(null);
+			list.setSelector(android.R.color.transparent);
+			list.setAdapter(this.messageAdapter = new TheAlertDialogMessageAdapter(this.vMessage));
+		}
+		return this.vMessageList;
+	}
+
+	// Current message (includes appended text), resource message is not resolved
+	private CharSequence obtainMessage() {
+		return this.messageBuilder != null ? this.messageBuilder : this.message;
+	}
+
+	// Load message from resource (if set), and return current message
+	private CharSequence resolveMessage() {
+		if (this.messageTextResId > 0 && this.context != null) {
+			final String text = this.context.getString(this.messageTextResId);
+			if (this.messageBuilder != null) {
+				// Appended text is kept after the resource text
+				this.messageBuilder.insert(0, text);
+				this.messageTextResId = 0;
+			}
+			else {
+				this.message = text;
+			}
+		}
+		return obtainMessage();
+	}
+
+	// Large message is shown in streaming mode, and is not stored in instance state
+	private boolean isLargeMessage() {
+		final CharSequence message = obtainMessage();
+		return message != null && (this.isStreamingMessage || message.length() >= STREAMING_MESSAGE_MIN_LENGTH);
+	}
+
+	// Lookup body view in order: this dialog -> pool -> inflate new one
+	private View obtainBodyView(int layoutResId) {
+		if (this.bodyViews == null) {
+			this.bodyViews = new SparseArray<>();
+		}
+		View body = this.bodyViews.get(layoutResId);
+		if (body == null) {
+			body = this.onBindBody != null ? TheAlertDialogLayoutPool.acquire(this.context, layoutResId) : null;
+			if (body == null) {
+				// Inflate against body container to keep layout params of the body
+				body = LayoutInflater.from(this.context).inflate(layoutResId, this.vBody, false);
+			}
+			this.bodyViews.put(layoutResId, body);
+		}
+		return body;
+	}
+
 	private void decorCancelButton() {
 		if (this.vCancel != null) {
 			if (this.cancelTextResId > 0) {
@@ -770,106 +1235,61 @@ public class DkAlertDialog
 
 	private void showEnterAnimation() {
 		if (this.vContent != null) {
-			// Jump to end state to complete last animation
-			if (this.animator == null) {
-				this.animator = ValueAnimator.ofFloat(0.85f, 1f);
-			}
-			else {
-				this.animator.end();
-				this.animator.removeAllUpdateListeners();
-				this.animator.removeAllListeners();
-			}
-
-			this.animUpdater = acquireAnimationUpdater();
-			this.animInterpolator = acquireEnterAnimationInterpolator();
-
-			this.animator.setDuration(150);
-			this.animator.setInterpolator(this.animInterpolator);
-			this.animator.addUpdateListener(anim -> {
-				this.animUpdater.run(anim, this.vContent);
-			});
-			this.animator.addListener(new AnimatorListenerAdapter() {
-				@Override
-				public void onAnimationEnd(Animator animation) {
-					//					super.onAnimationEnd(animation);
-					//					onShowAnimationEnd(dialog);
-				}
-			});
-			this.animator.start();
+			TheAlertDialogAnimator.enter(this.vContent, this.enterAnimationType, acquireEnterAnimationInterpolator(), 150);
 		}
 	}
 
-	private void showExitAnimation() {
-		if (animator != null) {
-			animUpdater = acquireAnimationUpdater();
-			animInterpolator = acquireEnterAnimationInterpolator();
-
-			animator.removeAllListeners();
-			animator.removeAllUpdateListeners();
-			animator.setDuration(DkAnimationConfiguration.ANIM_LARGE_COLLAPSE_DURATION);
-			animator.addListener(new AnimatorListenerAdapter() {
-				@Override
-				public void onAnimationEnd(Animator animation) {
-					//						super.onAnimationEnd(animation);
-					//						onDismissAnimationEnd(dialog);
-				}
-			});
-			animator.reverse();
+	// Restore content which was faded out (and blocked) by exit animation
+	private void restoreContent() {
+		if (this.vContent != null) {
+			this.vContent.setScaleX(1f);
+			this.vContent.setScaleY(1f);
+			this.vContent.setTranslationY(0f);
+			this.vContent.setAlpha(1f);
 		}
+		setContentClickable(true);
 	}
 
-	private Interpolator acquireEnterAnimationInterpolator() {
-		if (enterAnimationType == ANIM_ZOOM_IN_OUT) {
-			if (defaultEnterAnimInterpolator == null) {
-				defaultEnterAnimInterpolator = PathInterpolatorCompat.create(
-					0.72f, 1.32f,
-					0.90f, 1.33f);
-			}
-		}
-		else if (enterAnimationType == ANIM_SWIPE_DOWN) {
-			if (defaultEnterAnimInterpolator == null) {
-				defaultEnterAnimInterpolator = new DkLookupTableInterpolator(null); // DkInterpolatorProvider.easeElasticOut()
-			}
+	private void setContentClickable(boolean clickable) {
+		if (this.vLite != null) {
+			this.vLite.setEnabled(clickable);
 		}
 		else {
-			throw new RuntimeException("Invalid animType");
+			for (View button : new View[] {this.vCancel, this.vReset, this.vOk}) {
+				if (button != null) {
+					button.setClickable(clickable);
+				}
+			}
 		}
-		return (animInterpolator = defaultEnterAnimInterpolator);
 	}
 
-	private static float[] enterAnimationlookupTable = {
-		1f
-	};
-
-	private static float[] exitAnimationlookupTable = {
-		1f
-	};
-
-	private DkRunner2<ValueAnimator, View> acquireAnimationUpdater() {
-		if (animUpdater == null) {
-			switch (enterAnimationType) {
-				case ANIM_ZOOM_IN_OUT: {
-					animUpdater = (va, view) -> {
-						float t = va.getAnimatedFraction();
-						float scaleFactor = (float) va.getAnimatedValue();
+	private void showExitAnimation(Runnable onEnd) {
+		final int animType = this.exitAnimationType != -1 ? this.exitAnimationType : this.enterAnimationType;
+		TheAlertDialogAnimator.exit(this.vContent, animType, acquireExitAnimationInterpolator(),
+			DkAnimationConfiguration.ANIM_LARGE_COLLAPSE_DURATION, onEnd);
+	}
 
-						view.setScaleX(scaleFactor);
-						view.setScaleY(scaleFactor);
-					};
-					break;
-				}
-				case ANIM_SWIPE_DOWN: {
-					animUpdater = (va, view) -> {
-						view.setY((va.getAnimatedFraction() - 1) * view.getHeight() / 2);
-					};
-					break;
-				}
-				default: {
-					throw new RuntimeException("Invalid animType");
-				}
+	// Interpolators are shared lookup tables, so no bezier evaluation at each frame
+	private Interpolator acquireEnterAnimationInterpolator() {
+		switch (this.enterAnimationType) {
+			case ANIM_ZOOM_IN_OUT: {
+				return TheInterpolatorTables.cubicBezier(0.72f, 1.32f, 0.90f, 1.33f);
+			}
+			case ANIM_SWIPE_DOWN: {
+				return TheInterpolatorTables.elasticOut();
+			}
+			case ANIM_SPRING: {
+				// Spring does not use interpolator
+				return null;
+			}
+			default: {
+				throw new RuntimeException("Invalid animType");
 			}
 		}
-		return animUpdater;
+	}
+
+	private Interpolator acquireExitAnimationInterpolator() {
+		return TheInterpolatorTables.cubicBezier(0.4f, 0f, 1f, 1f);
 	}
 
 	// endregion Private
@@ -914,11 +1334,172 @@ public class DkAlertDialog
 		return cancelable;
 	}
 
+	/**
+	 * Packed instance state of the dialog. Boolean settings are packed into one int,
+	 * resource ids are written as varints, so the state is small and can be restored in one lookup.
+	 */
+	public static class InstanceState implements Parcelable {
+		static final String KEY = "DkAlertDialog.state";
+
+		private static final int FLAG_CANCELABLE = 1;
+		private static final int FLAG_HAS_BACKGROUND_COLOR = 1 << 1;
+		private static final int FLAG_HAS_MESSAGE_BACKGROUND_COLOR = 1 << 2;
+		private static final int FLAG_DIMENSION_RATIO_BASED_ON_WIDTH = 1 << 3;
+		private static final int FLAG_DISMISS_ON_CLICK_BUTTON = 1 << 4;
+		private static final int FLAG_DISMISS_ON_TOUCH_OUTSIDE = 1 << 5;
+		private static final int FLAG_FULL_SCREEN = 1 << 6;
+		private static final int FLAG_PROGRAMMATIC_LAYOUT = 1 << 7;
+		private static final int FLAG_VERTICAL_ACTIONS = 1 << 8;
+		private static final int FLAG_STREAMING_MESSAGE = 1 << 9;
+		private static final int FLAG_LITE_LAYOUT = 1 << 10;
+
+		private static final int RES_ID_COUNT = 8;
+
+		private final int flags;
+		private final int[] resIds; // icon, title, subtitle, body, message, cancel, reset, ok
+		private final int backgroundColor;
+		private final int headerBackgroundColor;
+		private final int titleTextColor;
+		private final int messageBackgroundColor;
+		private final float widthPercent;
+		private final float heightPercent;
+		private final float widthRatio;
+		private final float heightRatio;
+		private final CharSequence title;
+		private final String message;
+
+		InstanceState(DkAlertDialog dialog) {
+			int flags = 0;
+			flags = TheCompactParcels.setFlag(flags, FLAG_CANCELABLE, dialog.cancelable);
+			flags = TheCompactParcels.setFlag(flags, FLAG_HAS_BACKGROUND_COLOR, dialog.backgroundColor != null);
+			flags = TheCompactParcels.setFlag(flags, FLAG_HAS_MESSAGE_BACKGROUND_COLOR, dialog.messageBackgroundColor != null);
+			flags = TheCompactParcels.setFlag(flags, FLAG_DIMENSION_RATIO_BASED_ON_WIDTH, dialog.dimensionRatioBasedOnWidth);
+			flags = TheCompactParcels.setFlag(flags, FLAG_DISMISS_ON_CLICK_BUTTON, dialog.isDismissOnClickButton);
+			flags = TheCompactParcels.setFlag(flags, FLAG_DISMISS_ON_TOUCH_OUTSIDE, dialog.isDismissOnTouchOutside);
+			flags = TheCompactParcels.setFlag(flags, FLAG_FULL_SCREEN, dialog.isFullScreen);
+			flags = TheCompactParcels.setFlag(flags, FLAG_PROGRAMMATIC_LAYOUT, dialog.isProgrammaticLayout);
+			flags = TheCompactParcels.setFlag(flags, FLAG_VERTICAL_ACTIONS, dialog.layoutType == LAYOUT_TYPE_VERTICAL_ACTIONS);
+			flags = TheCompactParcels.setFlag(flags, FLAG_STREAMING_MESSAGE, dialog.isStreamingMessage);
+			flags = TheCompactParcels.setFlag(flags, FLAG_LITE_LAYOUT, dialog.isLiteLayout);
+			this.flags = flags;
+
+			this.resIds = new int[] {
+				dialog.iconResId,
+				dialog.titleTextResId,
+				dialog.subTitleTextResId,
+				dialog.bodyLayoutResId,
+				dialog.messageTextResId,
+				dialog.cancelTextResId,
+				dialog.resetTextResId,
+				dialog.okTextResId
+			};
+			this.backgroundColor = dialog.backgroundColor != null ? dialog.backgroundColor : 0;
+			this.headerBackgroundColor = dialog.headerBackgroundColor;
+			this.titleTextColor = dialog.titleTextColor;
+			this.messageBackgroundColor = dialog.messageBackgroundColor != null ? dialog.messageBackgroundColor : 0;
+			this.widthPercent = dialog.widthPercent;
+			this.heightPercent = dialog.heightPercent;
+			this.widthRatio = dialog.widthRatio;
+			this.heightRatio = dialog.heightRatio;
+			this.title = dialog.title;
+			// Large message is too large for transaction of the Bundle, it is kept in view model
+			final CharSequence message = dialog.obtainMessage();
+			this.message = message == null || dialog.isLargeMessage() ? null : message.toString();
+		}
+
+		protected InstanceState(Parcel in) {
+			this.flags = in.readInt();
+			this.resIds = TheCompactParcels.readResIds(in, RES_ID_COUNT);
+			this.backgroundColor = in.readInt();
+			this.headerBackgroundColor = in.readInt();
+			this.titleTextColor = in.readInt();
+			this.messageBackgroundColor = in.readInt();
+			this.widthPercent = in.readFloat();
+			this.heightPercent = in.readFloat();
+			this.widthRatio = in.readFloat();
+			this.heightRatio = in.readFloat();
+			this.title = TextUtils.CHAR_SEQUENCE_CREATOR.createFromParcel(in);
+			this.message = in.readString();
+		}
+
+		@Override
+		public void writeToParcel(Parcel dest, int flags) {
+			dest.writeInt(this.flags);
+			TheCompactParcels.writeResIds(dest, this.resIds);
+			dest.writeInt(this.backgroundColor);
+			dest.writeInt(this.headerBackgroundColor);
+			dest.writeInt(this.titleTextColor);
+			dest.writeInt(this.messageBackgroundColor);
+			dest.writeFloat(this.widthPercent);
+			dest.writeFloat(this.heightPercent);
+			dest.writeFloat(this.widthRatio);
+			dest.writeFloat(this.heightRatio);
+			TextUtils.writeToParcel(this.title, dest, flags);
+			dest.writeString(this.message);
+		}
+
+		void applyTo(DkAlertDialog dialog) {
+			final int flags = this.flags;
+			dialog.cancelable = TheCompactParcels.isFlagSet(flags, FLAG_CANCELABLE);
+			dialog.backgroundColor = TheCompactParcels.isFlagSet(flags, FLAG_HAS_BACKGROUND_COLOR) ? this.backgroundColor : null;
+			dialog.messageBackgroundColor = TheCompactParcels.isFlagSet(flags, FLAG_HAS_MESSAGE_BACKGROUND_COLOR) ? this.messageBackgroundColor : null;
+			dialog.dimensionRatioBasedOnWidth = TheCompactParcels.isFlagSet(flags, FLAG_DIMENSION_RATIO_BASED_ON_WIDTH);
+			dialog.isDismissOnClickButton = TheCompactParcels.isFlagSet(flags, FLAG_DISMISS_ON_CLICK_BUTTON);
+			dialog.isDismissOnTouchOutside = TheCompactParcels.isFlagSet(flags, FLAG_DISMISS_ON_TOUCH_OUTSIDE);
+			dialog.isFullScreen = TheCompactParcels.isFlagSet(flags, FLAG_FULL_SCREEN);
+			dialog.isProgrammaticLayout = TheCompactParcels.isFlagSet(flags, FLAG_PROGRAMMATIC_LAYOUT);
+			dialog.layoutType = TheCompactParcels.isFlagSet(flags, FLAG_VERTICAL_ACTIONS) ? LAYOUT_TYPE_VERTICAL_ACTIONS : LAYOUT_TYPE_HORIZONTAL_ACTIONS;
+			dialog.isStreamingMessage = TheCompactParcels.isFlagSet(flags, FLAG_STREAMING_MESSAGE);
+			dialog.isLiteLayout = TheCompactParcels.isFlagSet(flags, FLAG_LITE_LAYOUT);
+
+			final int[] resIds = this.resIds;
+			dialog.iconResId = resIds[0];
+			dialog.titleTextResId = resIds[1];
+			dialog.subTitleTextResId = resIds[2];
+			dialog.bodyLayoutResId = resIds[3];
+			dialog.messageTextResId = resIds[4];
+			dialog.cancelTextResId = resIds[5];
+			dialog.resetTextResId = resIds[6];
+			dialog.okTextResId = resIds[7];
+
+			dialog.headerBackgroundColor = this.headerBackgroundColor;
+			dialog.titleTextColor = this.titleTextColor;
+			dialog.widthPercent = this.widthPercent;
+			dialog.heightPercent = this.heightPercent;
+			dialog.widthRatio = this.widthRatio;
+			dialog.heightRatio = this.heightRatio;
+			dialog.title = this.title;
+			dialog.message = this.message;
+		}
+
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+
+		public static final Creator<InstanceState> CREATOR = new Creator<InstanceState>() {
+			@Override
+			public InstanceState createFromParcel(Parcel in) {
+				return new InstanceState(in);
+			}
+
+			@Override
+			public InstanceState[] newArray(int size) {
+				return new InstanceState[size];
+			}
+		};
+	}
+
 	private static class NonConfigState extends ViewModel {
 		private Drawable backgroundDrawable;
 
 		private DkRunner onCancel;
 		private DkRunner onReset;
 		private DkRunner onOk;
+		private DkRunner2<DkAlertDialog, View> onBindBody;
+
+		private DkDialogScheduler scheduler;
+		// Large message (String or growing StringBuilder) which is not stored in instance state
+		private CharSequence message;
 	}
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+/**
+ * Accessors of draw features (rounded corner, ripple, shadow, press scale) which are shared by compact widgets.
+ * A widget just provides its feature host via `obtainFeatureHost()`, and forwards View callbacks to the host.
+ * New feature is added at here (and at `TheCompactFeatureHost`) once for all widgets.
+ */
+public interface DkCompactFeatureView {
+	/**
+	 * Call this to obtain host of draw features (rounded corner,...) of this view.
+	 */
+	TheCompactFeatureHost obtainFeatureHost();
+
+	default void setRoundCornerFeatureEnabled(boolean enable) {
+		obtainFeatureHost().setFeatureEnabled(TheCompactFeatureHost.FEATURE_ROUND_CORNER, enable);
+	}
+
+	default boolean isRoundCornerFeatureEnabled() {
+		return obtainFeatureHost().isFeatureEnabled(TheCompactFeatureHost.FEATURE_ROUND_CORNER);
+	}
+
+	/**
+	 * Call this to obtain (prepare) rounded corner feature (setting, component).
+	 */
+	default TheCompactFeatureRoundCorner obtainRoundCornerFeature() {
+		return obtainFeatureHost().obtainRoundCornerFeature();
+	}
+
+	/**
+	 * @deprecated Use `obtainRoundCornerFeature()` instead.
+	 */
+	@Deprecated
+	default TheCompactFeatureRoundCorner obtainRoundCornerComponent() {
+		return obtainRoundCornerFeature();
+	}
+
+	default void setRippleFeatureEnabled(boolean enable) {
+		obtainFeatureHost().setFeatureEnabled(TheCompactFeatureHost.FEATURE_RIPPLE, enable);
+	}
+
+	default boolean isRippleFeatureEnabled() {
+		return obtainFeatureHost().isFeatureEnabled(TheCompactFeatureHost.FEATURE_RIPPLE);
+	}
+
+	/**
+	 * Call this to obtain (prepare) ripple foreground feature (setting, component).
+	 */
+	default TheCompactFeatureRipple obtainRippleFeature() {
+		return obtainFeatureHost().obtainRippleFeature();
+	}
+
+	default void setShadowFeatureEnabled(boolean enable) {
+		obtainFeatureHost().setFeatureEnabled(TheCompactFeatureHost.FEATURE_SHADOW, enable);
+	}
+
+	default boolean isShadowFeatureEnabled() {
+		return obtainFeatureHost().isFeatureEnabled(TheCompactFeatureHost.FEATURE_SHADOW);
+	}
+
+	/**
+	 * Call this to obtain (prepare) shadow feature (setting, component).
+	 */
+	default TheCompactFeatureShadow obtainShadowFeature() {
+		return obtainFeatureHost().obtainShadowFeature();
+	}
+
+	default void setPressScaleFeatureEnabled(boolean enable) {
+		obtainFeatureHost().setFeatureEnabled(TheCompactFeatureHost.FEATURE_PRESS_SCALE, enable);
+	}
+
+	default boolean isPressScaleFeatureEnabled() {
+		return obtainFeatureHost().isFeatureEnabled(TheCompactFeatureHost.FEATURE_PRESS_SCALE);
+	}
+
+	/**
+	 * Call this to obtain (prepare) press scale feature (setting, component).
+	 */
+	default TheCompactFeaturePressScale obtainPressScaleFeature() {
+		return obtainFeatureHost().obtainPressScaleFeature();
+	}
+}
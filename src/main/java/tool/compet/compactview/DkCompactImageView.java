@@ -5,22 +5,69 @@
 package tool.compet.compactview;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.util.AttributeSet;
 
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+
+import java.io.File;
+
 import tool.compet.appcompat.DkImageView;
 
 /**
  * This extends compat-version and provided some optional below features:
  * - [Optional] corner-rounded view (default: true)
- * - [Optional] foreground with ripple animation
+ * - [Optional] foreground with ripple animation (default: false)
+ * - [Optional] shadow which follows rounded shape (default: false)
+ * - [Optional] draw bitmap via shader instead of clipping (default: false)
+ * - [Optional] draw pre-rounded bitmap from cache (default: false)
+ * - [Optional] load image (file, content uri, resource) at background with size-aware downsampling
  */
-public class DkCompactImageView extends DkImageView {
+public class DkCompactImageView extends DkImageView implements DkCompactFeatureView {
 	protected Context context;
 
-	// Rounded corner feature
-	protected boolean isRoundCornerFeatureEnabled = true;
-	protected TheCompactFeatureRoundCorner featureRoundCorner;
+	// Draw features (rounded corner,...)
+	protected TheCompactFeatureHost featureHost;
+
+	// Shader rendering (draw bitmap into rounded shape without clip or layer)
+	protected boolean isShaderRenderingEnabled;
+	private Paint shaderPaint;
+	private BitmapShader shader;
+	private Bitmap shaderBitmap;
+	private final Matrix shaderMatrix = new Matrix();
+	private final RectF shaderRect = new RectF();
+	// Shader matrix is rebuilt only when the image, its bounds, scale type, padding or size was changed
+	private boolean isShaderMatrixDirty = true;
+	private Bitmap shaderMatrixBitmap;
+	private final Rect shaderMatrixBounds = new Rect();
+	private boolean isShaderMatrixCovering;
+
+	// Pre-rounded cache (draw one pre-composited bitmap per frame)
+	protected boolean isPreRoundedCacheEnabled;
+	private final float[] shaderMatrixValues = new float[9];
+	private Paint compositePaint;
+
+	// Image loading (source is one of: File, Uri, Integer (drawable resource id))
+	private Object imageSource;
+	private boolean isImageSourceLoaded;
+	private TheCompactImageLoader.Request imageRequest;
+	// Target size of current (or last) loading, used to reload only when the size was really changed
+	private int imageTargetWidth;
+	private int imageTargetHeight;
+	// Whether image is being set by this view (loaded image), so image source must be kept
+	private boolean isSettingLoadedImage;
 
 	public DkCompactImageView(Context context) {
 		super(context);
@@ -39,39 +86,463 @@ public class DkCompactImageView extends DkImageView {
 
 	private void init(Context context) {
 		this.context = context;
+		this.featureHost = new TheCompactFeatureHost(this, TheCompactFeatureHost.FEATURE_ROUND_CORNER);
 	}
 
 	@Override
 	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-		if (isRoundCornerFeatureEnabled()) {
-			obtainRoundCornerFeature().onSizeChanged(w, h);
-		}
+		featureHost.onSizeChanged(w, h);
 		super.onSizeChanged(w, h, oldw, oldh);
+		isShaderMatrixDirty = true;
+
+		// Target size of image was changed
+		if (imageSource != null) {
+			final int targetWidth = w - getPaddingLeft() - getPaddingRight();
+			final int targetHeight = h - getPaddingTop() - getPaddingBottom();
+			if (targetWidth != imageTargetWidth || targetHeight != imageTargetHeight) {
+				cancelImageLoading();
+				startImageLoading();
+			}
+		}
 	}
 
 	@Override
-	public void draw(Canvas canvas) {
-		if (isRoundCornerFeatureEnabled()) {
-			obtainRoundCornerFeature().drawRoundedCorner(this, canvas);
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+
+		// Resume loading which was cancelled at detached time
+		if (imageSource != null && ! isImageSourceLoaded && imageRequest == null) {
+			startImageLoading();
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		cancelImageLoading();
+		super.onDetachedFromWindow();
+	}
+
+	@Override
+	public void setImageDrawable(Drawable drawable) {
+		// Caller set other image, so stop loading (and reloading) of image source
+		if (! isSettingLoadedImage) {
+			clearImageSource();
+		}
+		super.setImageDrawable(drawable);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void setImageBitmap(Bitmap bm) {
+		if (! isSettingLoadedImage) {
+			clearImageSource();
 		}
+		super.setImageBitmap(bm);
+	}
+
+	@Override
+	public void setImageResource(int resId) {
+		clearImageSource();
+		super.setImageResource(resId);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void setImageURI(Uri uri) {
+		clearImageSource();
+		super.setImageURI(uri);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void setScaleType(ScaleType scaleType) {
+		super.setScaleType(scaleType);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void setImageMatrix(Matrix matrix) {
+		super.setImageMatrix(matrix);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void setPadding(int left, int top, int right, int bottom) {
+		super.setPadding(left, top, right, bottom);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void setPaddingRelative(int start, int top, int end, int bottom) {
+		super.setPaddingRelative(start, top, end, bottom);
+		isShaderMatrixDirty = true;
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		// At self-rounding mode, round-corner feature does not clip, just provides geometry
+		final int saveCount = featureHost.beforeDraw(canvas);
 		super.draw(canvas);
+		featureHost.afterDraw(canvas, saveCount);
+	}
+
+	@Override
+	protected void drawableStateChanged() {
+		super.drawableStateChanged();
+		// This maybe called from super constructor
+		if (featureHost != null) {
+			featureHost.onDrawableStateChanged(getDrawableState());
+		}
+	}
+
+	@Override
+	public void drawableHotspotChanged(float x, float y) {
+		super.drawableHotspotChanged(x, y);
+		if (featureHost != null) {
+			featureHost.onHotspotChanged(x, y);
+		}
+	}
+
+	@Override
+	public void jumpDrawablesToCurrentState() {
+		super.jumpDrawablesToCurrentState();
+		if (featureHost != null) {
+			featureHost.jumpToCurrentState();
+		}
+	}
+
+	@Override
+	protected boolean verifyDrawable(@NonNull Drawable who) {
+		return super.verifyDrawable(who) || (featureHost != null && featureHost.verifyDrawable(who));
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (isRoundCornerFeatureEnabled() && isSelfRoundingEnabled()) {
+			final TheCompactFeatureRoundCorner feature = obtainRoundCornerFeature();
+			final Bitmap bitmap = prepareShaderMatrix();
+
+			if (bitmap == null) {
+				// Image does not cover the view, so we fallback to clip it
+				final int saveCount = canvas.save();
+				canvas.clipPath(feature.obtainShapePath());
+				super.onDraw(canvas);
+				canvas.restoreToCount(saveCount);
+				feature.drawBorder(canvas);
+			}
+			else if (isPreRoundedCacheEnabled) {
+				drawPreRounded(canvas, feature, bitmap);
+			}
+			else {
+				drawWithShader(canvas, feature, bitmap);
+				feature.drawBorder(canvas);
+			}
+		}
+		else {
+			super.onDraw(canvas);
+		}
 	}
 
-	public void setRoundCornerFeatureEnabled(boolean enable) {
-		isRoundCornerFeatureEnabled = enable;
+	/**
+	 * Calculate shader matrix which maps current bitmap to this view (same as how ImageView draws the drawable).
+	 * The matrix is cached, and rebuilt only when the image or its placement was changed.
+	 *
+	 * @return null if current drawable is not bitmap or the image does not cover whole view.
+	 */
+	private Bitmap prepareShaderMatrix() {
+		final Drawable drawable = getDrawable();
+		if (! (drawable instanceof BitmapDrawable)) {
+			return null;
+		}
+		final Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+		if (bitmap == null || bitmap.getWidth() == 0 || bitmap.getHeight() == 0) {
+			return null;
+		}
+
+		final Rect bounds = drawable.getBounds();
+		if (! isShaderMatrixDirty && bitmap == shaderMatrixBitmap && bounds.equals(shaderMatrixBounds)) {
+			return isShaderMatrixCovering ? bitmap : null;
+		}
+		isShaderMatrixDirty = false;
+		shaderMatrixBitmap = bitmap;
+		shaderMatrixBounds.set(bounds);
+
+		// Map bitmap -> drawable bounds -> view
+		final Matrix shaderMatrix = this.shaderMatrix;
+		shaderMatrix.setScale(bounds.width() / (float) bitmap.getWidth(), bounds.height() / (float) bitmap.getHeight());
+		shaderMatrix.postTranslate(bounds.left, bounds.top);
+		if (getScaleType() != ScaleType.FIT_XY) {
+			shaderMatrix.postConcat(getImageMatrix());
+		}
+		shaderMatrix.postTranslate(getPaddingLeft(), getPaddingTop());
+
+		final int w = getWidth();
+		final int h = getHeight();
+		final RectF rect = this.shaderRect;
+		rect.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+		shaderMatrix.mapRect(rect);
+		isShaderMatrixCovering = rect.left <= 0.5f && rect.top <= 0.5f && rect.right >= w - 0.5f && rect.bottom >= h - 0.5f;
+
+		return isShaderMatrixCovering ? bitmap : null;
 	}
 
-	public boolean isRoundCornerFeatureEnabled() {
-		return isRoundCornerFeatureEnabled;
+	/**
+	 * Draw the bitmap through shader into rounded shape of this view.
+	 * Must call `prepareShaderMatrix()` before call this.
+	 */
+	private void drawWithShader(Canvas canvas, TheCompactFeatureRoundCorner feature, Bitmap bitmap) {
+		if (shader == null || shaderBitmap != bitmap) {
+			shaderBitmap = bitmap;
+			shader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+		}
+		shader.setLocalMatrix(shaderMatrix);
+
+		Paint paint = shaderPaint;
+		if (paint == null) {
+			paint = shaderPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+		}
+		paint.setShader(shader);
+		paint.setColorFilter(getColorFilter());
+		paint.setAlpha(getImageAlpha());
+
+		final boolean uniform = ! feature.isCircle && feature.hasUniformRadius();
+		drawShape(canvas, paint, getWidth(), getHeight(), feature.isCircle,
+			uniform ? feature.roundRadiusArr[0] : 0, uniform || feature.isCircle ? null : feature.obtainShapePath());
 	}
 
 	/**
-	 * Call this to obtain (prepare) rounded corner feature (setting, component).
+	 * Fill rounded shape with given paint. This does not access the view, so it can be called at background.
+	 *
+	 * @param shapePath Shape path for non-uniform radii, or null to draw circle or round rect with uniform radius.
 	 */
-	public TheCompactFeatureRoundCorner obtainRoundCornerFeature() {
-		if (featureRoundCorner == null) {
-			featureRoundCorner = new TheCompactFeatureRoundCorner(context);
+	private static void drawShape(Canvas canvas, Paint paint, int w, int h, boolean isCircle, float radius, Path shapePath) {
+		if (isCircle) {
+			canvas.drawCircle(w / 2f, h / 2f, Math.min(w, h) / 2f, paint);
+		}
+		else if (shapePath == null) {
+			canvas.drawRoundRect(0, 0, w, h, radius, radius, paint);
 		}
-		return featureRoundCorner;
+		else {
+			canvas.drawPath(shapePath, paint);
+		}
+	}
+
+	/**
+	 * Draw pre-rounded (and bordered) bitmap from cache. If not exist, request to render it at background,
+	 * and draw with shader until it is ready (no full-size bitmap is allocated at draw time).
+	 * Must call `prepareShaderMatrix()` before call this.
+	 */
+	private void drawPreRounded(Canvas canvas, TheCompactFeatureRoundCorner feature, Bitmap bitmap) {
+		final int w = getWidth();
+		final int h = getHeight();
+
+		shaderMatrix.getValues(shaderMatrixValues);
+		TheCompactRoundedBitmapCache.prepareKey(bitmap, shaderMatrixValues, w, h, feature);
+
+		final Bitmap rounded = TheCompactRoundedBitmapCache.get();
+		if (rounded == null) {
+			if (! TheCompactRoundedBitmapCache.isRendering()) {
+				requestPreRounded(feature, bitmap, w, h);
+			}
+			drawWithShader(canvas, feature, bitmap);
+			feature.drawBorder(canvas);
+			return;
+		}
+
+		// Color filter and alpha are applied at composite time, so they are not part of the key
+		Paint paint = null;
+		if (getColorFilter() != null || getImageAlpha() != 0xff) {
+			paint = compositePaint;
+			if (paint == null) {
+				paint = compositePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+			}
+			paint.setColorFilter(getColorFilter());
+			paint.setAlpha(getImageAlpha());
+		}
+		canvas.drawBitmap(rounded, 0, 0, paint);
+	}
+
+	/**
+	 * Take current geometry, and render rounded (and bordered) bitmap for prepared cache key at background.
+	 */
+	private void requestPreRounded(TheCompactFeatureRoundCorner feature, Bitmap bitmap, int w, int h) {
+		final Matrix matrix = new Matrix(shaderMatrix);
+		final boolean isCircle = feature.isCircle;
+		final boolean uniform = ! isCircle && feature.hasUniformRadius();
+		final float radius = uniform ? feature.roundRadiusArr[0] : 0;
+		final Path shapePath = uniform || isCircle ? null : feature.obtainShapePath();
+		final Path borderPath = feature.obtainBorderPath();
+		final Paint borderPaint = borderPath != null ? new Paint(feature.obtainRoundPaint()) : null;
+
+		TheCompactRoundedBitmapCache.renderAsync(w, h, canvas -> {
+			final BitmapShader shader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+			shader.setLocalMatrix(matrix);
+			final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+			paint.setShader(shader);
+
+			drawShape(canvas, paint, w, h, isCircle, radius, shapePath);
+			if (borderPath != null) {
+				canvas.drawPath(borderPath, borderPaint);
+			}
+		}, this::invalidate);
+	}
+
+	// region Image loading
+
+	/**
+	 * Decode the image file at background, downsample it to size of this view and show it.
+	 */
+	public void loadImage(@NonNull File file) {
+		loadImageSource(file);
+	}
+
+	/**
+	 * Decode the image uri (content, file, android.resource) at background,
+	 * downsample it to size of this view and show it.
+	 */
+	public void loadImage(@NonNull Uri uri) {
+		loadImageSource(uri);
+	}
+
+	/**
+	 * Decode the drawable resource (must be bitmap) at background, downsample it to size of this view and show it.
+	 */
+	public void loadImage(@DrawableRes int resId) {
+		loadImageSource(resId);
+	}
+
+	/**
+	 * Cancel in-flight loading (if has), for eg,. when this view is recycled.
+	 */
+	public void cancelImageLoading() {
+		if (imageRequest != null) {
+			imageRequest.cancel();
+			imageRequest = null;
+		}
+	}
+
+	private void loadImageSource(Object source) {
+		cancelImageLoading();
+		this.imageSource = source;
+		this.isImageSourceLoaded = false;
+		startImageLoading();
+	}
+
+	private void startImageLoading() {
+		final int w = getWidth() - getPaddingLeft() - getPaddingRight();
+		final int h = getHeight() - getPaddingTop() - getPaddingBottom();
+
+		// Wait until this view is measured
+		if (w <= 0 || h <= 0) {
+			return;
+		}
+		imageTargetWidth = w;
+		imageTargetHeight = h;
+
+		final Bitmap cached = TheCompactImageLoader.getCached(imageSource, w, h);
+		if (cached != null) {
+			isImageSourceLoaded = true;
+			setLoadedImage(cached);
+		}
+		else {
+			// Clear old image (maybe from previous binding) while loading
+			setLoadedImage(null);
+			imageRequest = TheCompactImageLoader.load(this, imageSource, w, h);
+		}
+	}
+
+	private void setLoadedImage(Bitmap bitmap) {
+		isSettingLoadedImage = true;
+		try {
+			if (bitmap != null) {
+				setImageBitmap(bitmap);
+			}
+			else {
+				setImageDrawable(null);
+			}
+		}
+		finally {
+			isSettingLoadedImage = false;
+		}
+	}
+
+	private void clearImageSource() {
+		// This maybe called from super constructor
+		if (imageSource != null) {
+			cancelImageLoading();
+			imageSource = null;
+			isImageSourceLoaded = false;
+			imageTargetWidth = imageTargetHeight = 0;
+		}
+	}
+
+	/**
+	 * Called at main thread when the image was decoded.
+	 */
+	void onImageLoaded(TheCompactImageLoader.Request request, Bitmap bitmap) {
+		if (request == imageRequest) {
+			imageRequest = null;
+			isImageSourceLoaded = true;
+			if (bitmap != null) {
+				setLoadedImage(bitmap);
+			}
+		}
+	}
+
+	// endregion Image loading
+
+	/**
+	 * Enable to draw the bitmap through shader into rounded shape (no clip, no layer, anti-aliased).
+	 * Note that, background of the view will not be rounded in this mode.
+	 */
+	public void setShaderRenderingEnabled(boolean enable) {
+		if (isShaderRenderingEnabled != enable) {
+			isShaderRenderingEnabled = enable;
+			onSelfRoundingChanged();
+		}
+	}
+
+	public boolean isShaderRenderingEnabled() {
+		return isShaderRenderingEnabled;
+	}
+
+	/**
+	 * Enable to render rounded (and bordered) image once into a cached bitmap, and just draw that bitmap
+	 * at next frames. This is useful for static grids of rounded thumbnails.
+	 * Note that, background of the view will not be rounded in this mode.
+	 */
+	public void setPreRoundedCacheEnabled(boolean enable) {
+		if (isPreRoundedCacheEnabled != enable) {
+			isPreRoundedCacheEnabled = enable;
+			onSelfRoundingChanged();
+		}
+	}
+
+	public boolean isPreRoundedCacheEnabled() {
+		return isPreRoundedCacheEnabled;
+	}
+
+	/**
+	 * Whether this view renders rounded image by itself instead of clipping.
+	 */
+	private boolean isSelfRoundingEnabled() {
+		return isShaderRenderingEnabled || isPreRoundedCacheEnabled;
+	}
+
+	private void onSelfRoundingChanged() {
+		final boolean selfRounding = isSelfRoundingEnabled();
+		obtainRoundCornerFeature().setClipEnabled(! selfRounding);
+		if (! selfRounding) {
+			shader = null;
+			shaderBitmap = null;
+			shaderMatrixBitmap = null;
+			isShaderMatrixDirty = true;
+		}
+		invalidate();
+	}
+
+	@Override
+	public TheCompactFeatureHost obtainFeatureHost() {
+		return featureHost;
 	}
 }
@@ -6,21 +6,24 @@ package tool.compet.compactview;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 
+import androidx.annotation.NonNull;
+
 import tool.compet.appcompat.DkRadioButton;
 
 /**
  * This extends compat-version and provided some optional below features:
  * - [Optional] corner-rounded view (default: true)
- * - [Optional] foreground with ripple animation
+ * - [Optional] foreground with ripple animation (default: false)
+ * - [Optional] shadow which follows rounded shape (default: false)
  */
-public class DkCompactRadioButton extends DkRadioButton {
+public class DkCompactRadioButton extends DkRadioButton implements DkCompactFeatureView {
 	protected Context context;
 
-	// Rounded corner feature
-	protected boolean isRoundCornerFeatureEnabled = true;
-	protected TheCompactFeatureRoundCorner cmpRoundCorner;
+	// Draw features (rounded corner,...)
+	protected TheCompactFeatureHost featureHost;
 
 	public DkCompactRadioButton(Context context) {
 		super(context);
@@ -39,39 +42,54 @@ public class DkCompactRadioButton extends DkRadioButton {
 
 	private void init(Context context) {
 		this.context = context;
+		this.featureHost = new TheCompactFeatureHost(this, TheCompactFeatureHost.FEATURE_ROUND_CORNER);
 	}
 
 	@Override
 	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-		if (isRoundCornerFeatureEnabled()) {
-			obtainRoundCornerComponent().onSizeChanged(w, h);
-		}
+		featureHost.onSizeChanged(w, h);
 		super.onSizeChanged(w, h, oldw, oldh);
 	}
 
 	@Override
 	public void draw(Canvas canvas) {
-		if (isRoundCornerFeatureEnabled()) {
-			obtainRoundCornerComponent().drawRoundedCorner(this, canvas);
-		}
+		final int saveCount = featureHost.beforeDraw(canvas);
 		super.draw(canvas);
+		featureHost.afterDraw(canvas, saveCount);
 	}
 
-	public void setRoundCornerFeatureEnabled(boolean enable) {
-		isRoundCornerFeatureEnabled = enable;
+	@Override
+	protected void drawableStateChanged() {
+		super.drawableStateChanged();
+		// This maybe called from super constructor
+		if (featureHost != null) {
+			featureHost.onDrawableStateChanged(getDrawableState());
+		}
 	}
 
-	public boolean isRoundCornerFeatureEnabled() {
-		return isRoundCornerFeatureEnabled;
+	@Override
+	public void drawableHotspotChanged(float x, float y) {
+		super.drawableHotspotChanged(x, y);
+		if (featureHost != null) {
+			featureHost.onHotspotChanged(x, y);
+		}
 	}
 
-	/**
-	 * Call this to obtain (prepare) rounded corner setting component (setting).
-	 */
-	public TheCompactFeatureRoundCorner obtainRoundCornerComponent() {
-		if (cmpRoundCorner == null) {
-			cmpRoundCorner = new TheCompactFeatureRoundCorner(context);
+	@Override
+	public void jumpDrawablesToCurrentState() {
+		super.jumpDrawablesToCurrentState();
+		if (featureHost != null) {
+			featureHost.jumpToCurrentState();
 		}
-		return cmpRoundCorner;
+	}
+
+	@Override
+	protected boolean verifyDrawable(@NonNull Drawable who) {
+		return super.verifyDrawable(who) || (featureHost != null && featureHost.verifyDrawable(who));
+	}
+
+	@Override
+	public TheCompactFeatureHost obtainFeatureHost() {
+		return featureHost;
 	}
 }
@@ -6,21 +6,27 @@ package tool.compet.compactview;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 
+import androidx.annotation.NonNull;
+
 import tool.compet.appcompat.DkTextView;
 
 /**
  * This extends compat-version and provided some optional below features:
  * - [Optional] corner-rounded view (default: true)
- * - [Optional] foreground with ripple animation
+ * - [Optional] foreground with ripple animation (default: false)
+ * - [Optional] shadow which follows rounded shape (default: false)
  */
-public class DkCompactTextView extends DkTextView {
+public class DkCompactTextView extends DkTextView implements DkCompactFeatureView {
 	protected Context context;
 
-	// Rounded corner feature
-	protected boolean isRoundCornerFeatureEnabled = true;
-	protected TheCompactFeatureRoundCorner cmpRoundCorner;
+	// Draw features (rounded corner,...)
+	protected TheCompactFeatureHost featureHost;
+
+	// Whether text was requested via `setTextAsync()` and maybe not yet applied
+	private boolean hasPendingAsyncText;
 
 	public DkCompactTextView(Context context) {
 		super(context);
@@ -39,39 +45,73 @@ public class DkCompactTextView extends DkTextView {
 
 	private void init(Context context) {
 		this.context = context;
+		this.featureHost = new TheCompactFeatureHost(this, TheCompactFeatureHost.FEATURE_ROUND_CORNER);
 	}
 
 	@Override
 	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-		if (isRoundCornerFeatureEnabled()) {
-			obtainRoundCornerComponent().onSizeChanged(w, h);
-		}
+		featureHost.onSizeChanged(w, h);
 		super.onSizeChanged(w, h, oldw, oldh);
 	}
 
 	@Override
 	public void draw(Canvas canvas) {
-		if (isRoundCornerFeatureEnabled()) {
-			obtainRoundCornerComponent().drawRoundedCorner(this, canvas);
-		}
+		final int saveCount = featureHost.beforeDraw(canvas);
 		super.draw(canvas);
+		featureHost.afterDraw(canvas, saveCount);
+	}
+
+	@Override
+	protected void drawableStateChanged() {
+		super.drawableStateChanged();
+		// This maybe called from super constructor
+		if (featureHost != null) {
+			featureHost.onDrawableStateChanged(getDrawableState());
+		}
 	}
 
-	public void setRoundCornerFeatureEnabled(boolean enable) {
-		isRoundCornerFeatureEnabled = enable;
+	@Override
+	public void drawableHotspotChanged(float x, float y) {
+		super.drawableHotspotChanged(x, y);
+		if (featureHost != null) {
+			featureHost.onHotspotChanged(x, y);
+		}
 	}
 
-	public boolean isRoundCornerFeatureEnabled() {
-		return isRoundCornerFeatureEnabled;
+	@Override
+	public void jumpDrawablesToCurrentState() {
+		super.jumpDrawablesToCurrentState();
+		if (featureHost != null) {
+			featureHost.jumpToCurrentState();
+		}
+	}
+
+	@Override
+	protected boolean verifyDrawable(@NonNull Drawable who) {
+		return super.verifyDrawable(who) || (featureHost != null && featureHost.verifyDrawable(who));
+	}
+
+	@Override
+	public void setText(CharSequence text, BufferType type) {
+		// Text which is set synchronously wins over pending async text
+		if (hasPendingAsyncText) {
+			hasPendingAsyncText = false;
+			TheCompactTextPrecomputer.cancel(this);
+		}
+		super.setText(text, type);
 	}
 
 	/**
-	 * Call this to obtain (prepare) rounded corner setting component (setting).
+	 * Measure and shape given text (with current text size, font,...) at background, then set it to this view.
+	 * Current text is kept until the result is ready. Use this for large text to avoid blocking main thread.
 	 */
-	public TheCompactFeatureRoundCorner obtainRoundCornerComponent() {
-		if (cmpRoundCorner == null) {
-			cmpRoundCorner = new TheCompactFeatureRoundCorner(context);
-		}
-		return cmpRoundCorner;
+	public void setTextAsync(CharSequence text) {
+		TheCompactTextPrecomputer.setTextAsync(this, text);
+		hasPendingAsyncText = true;
+	}
+
+	@Override
+	public TheCompactFeatureHost obtainFeatureHost() {
+		return featureHost;
 	}
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+
+import java.lang.ref.WeakReference;
+import java.util.PriorityQueue;
+
+import tool.compet.navigation.DkNavigatorOwner;
+
+/**
+ * Schedules alert dialogs of a navigator owner (activity, fragment), so only one dialog is shown at a time.
+ * - Pending dialogs are ordered by priority (higher first), then by schedule order.
+ * - Dialog which has same content (title, message, buttons...) as showing or pending one is dropped.
+ * - When showing dialog is closed, next dialog is shown. If possible, the next content is applied
+ * to the showing dialog without new fragment transaction.
+ * - Scheduler is kept in view model of the owner, so pending dialogs survive configuration change,
+ * and are released when the owner is destroyed. The owner itself is referred weakly.
+ * - Dialog is opened only while the owner is started. If it cannot be opened (for eg,. the owner saved its state),
+ * it is kept at head of the queue and opened again when the owner is started or resumed.
+ *
+ * Usage:
+ * <pre>
+ *    DkDialogScheduler.of(activity).schedule(new DkAlertDialog().setMessage(R.string.error), PRIORITY_HIGH);
+ * </pre>
+ */
+public class DkDialogScheduler {
+	public static final int PRIORITY_LOW = -10;
+	public static final int PRIORITY_NORMAL = 0;
+	public static final int PRIORITY_HIGH = 10;
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	// Current owner instance (it is changed after configuration change)
+	private WeakReference<DkNavigatorOwner> ownerRef;
+	private final PriorityQueue<Entry> pendingEntries = new PriorityQueue<>();
+	private DkAlertDialog showingDialog;
+	private long sequence;
+
+	private DkDialogScheduler() {
+	}
+
+	/**
+	 * Obtain scheduler of given navigator owner (activity, fragment), the owner must be `ViewModelStoreOwner`.
+	 * Must be called at main thread.
+	 */
+	public static DkDialogScheduler of(DkNavigatorOwner owner) {
+		final DkDialogScheduler scheduler = new ViewModelProvider((ViewModelStoreOwner) owner, Holder.FACTORY)
+			.get(Holder.class)
+			.scheduler;
+		scheduler.attachOwner(owner);
+		return scheduler;
+	}
+
+	public void schedule(DkAlertDialog dialog) {
+		schedule(dialog, PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Schedule the dialog to be shown. This can be called at any thread.
+	 *
+	 * @param priority Higher priority dialog will be shown earlier, for eg,. `PRIORITY_HIGH`.
+	 */
+	public void schedule(DkAlertDialog dialog, int priority) {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			mainHandler.post(() -> schedule(dialog, priority));
+			return;
+		}
+
+		// Merge with showing or pending dialog which has same content
+		if (showingDialog != null && showingDialog.hasSameContent(dialog)) {
+			return;
+		}
+		for (Entry entry : pendingEntries) {
+			if (entry.dialog.hasSameContent(dialog)) {
+				// Keep higher priority for merged dialog
+				if (entry.priority < priority) {
+					pendingEntries.remove(entry);
+					pendingEntries.add(new Entry(entry.dialog, priority, entry.sequence));
+				}
+				return;
+			}
+		}
+
+		pendingEntries.add(new Entry(dialog, priority, sequence++));
+
+		if (showingDialog == null) {
+			showNext();
+		}
+	}
+
+	/**
+	 * Remove all pending dialogs (showing dialog is not affected).
+	 */
+	public void clearPending() {
+		pendingEntries.clear();
+	}
+
+	public int pendingCount() {
+		return pendingEntries.size();
+	}
+
+	/**
+	 * Called when the showing dialog is going to be closed.
+	 *
+	 * @return true if next dialog content was applied to the showing dialog, so it should not be closed.
+	 */
+	boolean onDialogClose(DkAlertDialog dialog) {
+		if (dialog != showingDialog) {
+			return false;
+		}
+		final Entry next = pendingEntries.peek();
+		if (next != null && dialog.canAdoptContentOf(next.dialog)) {
+			pendingEntries.poll();
+			dialog.adoptContentOf(next.dialog);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Called when the showing dialog was re-created by fragment manager (after configuration change).
+	 */
+	void onDialogRecreated(DkAlertDialog dialog) {
+		if (this.showingDialog != null && this.showingDialog != dialog) {
+			this.showingDialog.scheduler = null;
+		}
+		this.showingDialog = dialog;
+		dialog.scheduler = this;
+
+		// Owner of the dialog is new owner instance
+		final Fragment parent = dialog.getParentFragment();
+		final Object owner = parent != null ? parent : dialog.getActivity();
+		if (owner instanceof DkNavigatorOwner) {
+			attachOwner((DkNavigatorOwner) owner);
+		}
+	}
+
+	/**
+	 * Called when the dialog was destroyed (closed by transaction, or owner was destroyed).
+	 */
+	void onDialogDestroyed(DkAlertDialog dialog) {
+		if (dialog == showingDialog) {
+			showingDialog = null;
+			dialog.scheduler = null;
+			// Next dialog will be shown after current transaction was done
+			mainHandler.post(this::showNext);
+		}
+	}
+
+	private void attachOwner(DkNavigatorOwner owner) {
+		if (this.ownerRef == null || this.ownerRef.get() != owner) {
+			this.ownerRef = new WeakReference<>(owner);
+
+			// Retry pending dialogs which could not be opened while the owner was stopped
+			if (owner instanceof LifecycleOwner) {
+				((LifecycleOwner) owner).getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+					if ((event == Lifecycle.Event.ON_START || event == Lifecycle.Event.ON_RESUME)
+						&& this.ownerRef != null && this.ownerRef.get() == owner) {
+						showNext();
+					}
+				});
+			}
+
+			// Pending dialogs maybe waiting for new owner (after configuration change)
+			if (this.showingDialog == null && ! this.pendingEntries.isEmpty()) {
+				mainHandler.post(this::showNext);
+			}
+		}
+	}
+
+	private void showNext() {
+		if (showingDialog != null) {
+			return;
+		}
+		// Wait until new owner is attached via `of()`
+		final DkNavigatorOwner owner = ownerRef != null ? ownerRef.get() : null;
+		if (owner == null) {
+			return;
+		}
+		// Wait until the owner is started (retried from lifecycle observer)
+		if (owner instanceof LifecycleOwner
+			&& ! ((LifecycleOwner) owner).getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+			return;
+		}
+		final Entry next = pendingEntries.peek();
+		if (next != null) {
+			final DkAlertDialog dialog = showingDialog = next.dialog;
+			dialog.scheduler = this;
+			if (dialog.open(owner.getChildNavigator())) {
+				pendingEntries.remove(next);
+			}
+			else {
+				// Keep it at head of the queue, and retry when the owner is started or resumed again
+				showingDialog = null;
+				dialog.scheduler = null;
+			}
+		}
+	}
+
+	// Called when the owner was destroyed (not by configuration change)
+	private void release() {
+		pendingEntries.clear();
+		if (showingDialog != null) {
+			showingDialog.scheduler = null;
+			showingDialog = null;
+		}
+		ownerRef = null;
+	}
+
+	private static final class Holder extends ViewModel {
+		static final ViewModelProvider.Factory FACTORY = new ViewModelProvider.Factory() {
+			@NonNull
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+				return (T) new Holder();
+			}
+		};
+
+		final DkDialogScheduler scheduler = new DkDialogScheduler();
+
+		@Override
+		protected void onCleared() {
+			scheduler.release();
+		}
+	}
+
+	private static final class Entry implements Comparable<Entry> {
+		final DkAlertDialog dialog;
+		final int priority;
+		final long sequence;
+
+		Entry(DkAlertDialog dialog, int priority, long sequence) {
+			this.dialog = dialog;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			if (priority != other.priority) {
+				return priority > other.priority ? -1 : 1;
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
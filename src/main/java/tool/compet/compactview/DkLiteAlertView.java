@@ -0,0 +1,949 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.widget.Button;
+import android.widget.TextView;
+
+import tool.compet.core.DkConfig;
+import tool.compet.core.DkRunner;
+import tool.compet.graphics.DkDrawables;
+
+/**
+ * Lite alert content which draws icon, title, message and action buttons in one view (no child views).
+ * Text layouts are cached and only rebuilt when text or width was changed, buttons are hit-tested
+ * via a rect table, and items are exposed to accessibility services as virtual views.
+ * - Message which does not fit is clipped and can be scrolled by dragging (or accessibility scroll actions).
+ * - Buttons can be focused and clicked with keyboard (D-pad, enter).
+ * - Icon and buttons are mirrored in right-to-left layout direction.
+ *
+ * Setters are same as `DkAlertDialog`. Note that custom body view and streaming message are not supported.
+ */
+public class DkLiteAlertView extends View {
+	public static final int BUTTON_CANCEL = 0;
+	public static final int BUTTON_RESET = 1;
+	public static final int BUTTON_OK = 2;
+
+	// Virtual view ids (buttons use their index as id)
+	private static final int VIRTUAL_ID_TITLE = 3;
+	private static final int VIRTUAL_ID_MESSAGE = 4;
+	private static final int INVALID_ID = Integer.MIN_VALUE;
+
+	// Layout order of buttons when they are stacked vertically
+	private static final int[] VERTICAL_BUTTON_ORDER = {BUTTON_OK, BUTTON_RESET, BUTTON_CANCEL};
+
+	private static final int NORMAL = Color.parseColor("#333333");
+	private static final int ASK = Color.parseColor("#009b8b");
+	private static final int ERROR = Color.parseColor("#ff0000");
+	private static final int WARNING = Color.parseColor("#ff9500");
+	private static final int INFO = Color.parseColor("#493ebb");
+	private static final int SUCCESS = Color.parseColor("#00bb4d");
+
+	private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+	private final TextPaint messagePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+	private final TextPaint buttonPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint fillPaint = new Paint();
+	private int spacing;
+	private int iconSize;
+	private int buttonHeight;
+
+	private Drawable icon;
+	private CharSequence title;
+	private CharSequence message;
+	private final CharSequence[] buttonTexts = new CharSequence[3];
+	private final DkRunner[] buttonActions = new DkRunner[3];
+	private int headerBackgroundColor = Color.TRANSPARENT;
+	private int messageBackgroundColor = Color.TRANSPARENT;
+	private int dividerColor = Color.parseColor("#1f000000");
+	private int pressedColor = Color.parseColor("#1f000000");
+	private int focusedColor = Color.parseColor("#14000000");
+	private boolean verticalActions = true;
+
+	// Cached text layouts, they are rebuilt only when text or width was changed
+	private StaticLayout titleLayout;
+	private StaticLayout messageLayout;
+	private final StaticLayout[] buttonLayouts = new StaticLayout[3];
+	private boolean isTextLayoutDirty = true;
+	private int textLayoutWidth = -1;
+
+	// Bound table (in view coordinates) for drawing, hit-testing and accessibility
+	private final Rect headerBounds = new Rect();
+	private final Rect titleBounds = new Rect();
+	private final Rect messageBounds = new Rect();
+	private final Rect[] buttonBounds = {new Rect(), new Rect(), new Rect()};
+	// Visible buttons in visual order (left to right, or top to bottom)
+	private final int[] visualButtons = new int[3];
+	private int visualButtonCount;
+	private int pressedButton = -1;
+	// Button which has keyboard focus (only when this view is focused)
+	private int focusedButton = -1;
+	// Button which will be clicked at `performClick()`
+	private int clickedButton = -1;
+
+	// Message scrolling (when message is taller than its bounds)
+	private int messageScrollY;
+	private int touchSlop;
+	private float touchDownY;
+	private float lastTouchY;
+	private boolean isTouchInMessage;
+	private boolean isScrollingMessage;
+
+	// Accessibility
+	private VirtualNodeProvider nodeProvider;
+	private int accessibilityFocusedId = INVALID_ID;
+	private int hoveredId = INVALID_ID;
+	private final int[] tmpLocation = new int[2];
+	private final Rect tmpRect = new Rect();
+
+	public DkLiteAlertView(Context context) {
+		super(context);
+		init(context);
+	}
+
+	public DkLiteAlertView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		init(context);
+	}
+
+	public DkLiteAlertView(Context context, AttributeSet attrs, int defStyleAttr) {
+		super(context, attrs, defStyleAttr);
+		init(context);
+	}
+
+	private void init(Context context) {
+		final float density = DkConfig.density();
+		this.spacing = (int) (12 * density);
+		this.iconSize = (int) (24 * density);
+		this.buttonHeight = (int) (48 * density);
+		this.touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+		final float buttonTextSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14, getResources().getDisplayMetrics());
+
+		buttonPaint.setTextSize(buttonTextSize);
+		buttonPaint.setTypeface(Typeface.DEFAULT_BOLD);
+		buttonPaint.setColor(TheAlertDialogFlatLayout.resolveColor(context, R.attr.colorAccent));
+
+		titlePaint.setTextSize(1.25f * buttonTextSize);
+		titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+		titlePaint.setColor(Color.BLACK);
+
+		messagePaint.setTextSize(1.125f * buttonTextSize);
+		messagePaint.setColor(NORMAL);
+
+		setBackgroundColor(TheAlertDialogFlatLayout.resolveColor(context, R.attr.dk_color_layout_bkg));
+		setFocusable(true);
+		setClickable(true);
+	}
+
+	// region Get/Set
+
+	public DkLiteAlertView setIcon(int iconResId) {
+		this.icon = iconResId > 0 ? DkDrawables.loadDrawable(getContext(), iconResId) : null;
+		return onContentChanged();
+	}
+
+	public DkLiteAlertView setTitle(int titleResId) {
+		return setTitle(titleResId > 0 ? getContext().getString(titleResId) : null);
+	}
+
+	public DkLiteAlertView setTitle(CharSequence title) {
+		this.title = title;
+		return onContentChanged();
+	}
+
+	public DkLiteAlertView setTitleTextColor(int titleTextColor) {
+		this.titlePaint.setColor(titleTextColor);
+		invalidate();
+		return this;
+	}
+
+	public DkLiteAlertView setMessage(int messageResId) {
+		return setMessage(messageResId > 0 ? getContext().getString(messageResId) : null);
+	}
+
+	public DkLiteAlertView setMessage(String message) {
+		this.message = message;
+		return onContentChanged();
+	}
+
+	public DkLiteAlertView setCancelButton(int textResId, DkRunner onCancel) {
+		return setButton(BUTTON_CANCEL, textResId, onCancel);
+	}
+
+	public DkLiteAlertView setCancelButton(int textResId) {
+		return setButton(BUTTON_CANCEL, textResId, this.buttonActions[BUTTON_CANCEL]);
+	}
+
+	public DkLiteAlertView setResetButton(int textResId, DkRunner onReset) {
+		return setButton(BUTTON_RESET, textResId, onReset);
+	}
+
+	public DkLiteAlertView setResetButton(int textResId) {
+		return setButton(BUTTON_RESET, textResId, this.buttonActions[BUTTON_RESET]);
+	}
+
+	public DkLiteAlertView setOkButton(int textResId, DkRunner onOk) {
+		return setButton(BUTTON_OK, textResId, onOk);
+	}
+
+	public DkLiteAlertView setOkButton(int textResId) {
+		return setButton(BUTTON_OK, textResId, this.buttonActions[BUTTON_OK]);
+	}
+
+	public DkLiteAlertView setHeaderBackgroundColor(int color) {
+		this.headerBackgroundColor = color;
+		invalidate();
+		return this;
+	}
+
+	public DkLiteAlertView setMessageBackgroundColor(int messageBackgroundColor) {
+		this.messageBackgroundColor = messageBackgroundColor;
+		invalidate();
+		return this;
+	}
+
+	/**
+	 * @param verticalActions true to stack buttons vertically, otherwise put them in a row.
+	 */
+	public DkLiteAlertView setVerticalActions(boolean verticalActions) {
+		this.verticalActions = verticalActions;
+		return onContentChanged();
+	}
+
+	public DkLiteAlertView asSuccess() {
+		return asColor(SUCCESS);
+	}
+
+	public DkLiteAlertView asError() {
+		return asColor(ERROR);
+	}
+
+	public DkLiteAlertView asWarning() {
+		return asColor(WARNING);
+	}
+
+	public DkLiteAlertView asAsk() {
+		return asColor(ASK);
+	}
+
+	public DkLiteAlertView asInfo() {
+		return asColor(INFO);
+	}
+
+	public DkLiteAlertView asColor(int color) {
+		return setTitleTextColor(color);
+	}
+
+	private DkLiteAlertView setButton(int index, int textResId, DkRunner action) {
+		this.buttonTexts[index] = textResId > 0 ? getContext().getText(textResId) : null;
+		this.buttonActions[index] = action;
+		return onContentChanged();
+	}
+
+	private DkLiteAlertView onContentChanged() {
+		this.isTextLayoutDirty = true;
+		this.messageScrollY = 0;
+		requestLayout();
+		invalidate();
+		return this;
+	}
+
+	// endregion Get/Set
+
+	// region Measure, Layout
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+		final int width = widthMode == MeasureSpec.UNSPECIFIED ? (int) (320 * DkConfig.density()) : MeasureSpec.getSize(widthMeasureSpec);
+
+		ensureTextLayouts(width);
+
+		// Bounds are computed again from actual height at layout time
+		final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+		final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+		int height = computeBounds(width, Integer.MAX_VALUE);
+		if (heightMode == MeasureSpec.EXACTLY) {
+			height = heightSize;
+		}
+		else if (heightMode == MeasureSpec.AT_MOST) {
+			height = Math.min(height, heightSize);
+		}
+		setMeasuredDimension(width, height);
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		super.onLayout(changed, left, top, right, bottom);
+
+		// Compute at each layout (not only when size changed) since measure pass computes unclamped bounds
+		final int w = right - left;
+		ensureTextLayouts(w);
+		computeBounds(w, bottom - top);
+	}
+
+	@Override
+	public void onRtlPropertiesChanged(int layoutDirection) {
+		super.onRtlPropertiesChanged(layoutDirection);
+		requestLayout();
+	}
+
+	private void ensureTextLayouts(int width) {
+		if (! this.isTextLayoutDirty && this.textLayoutWidth == width) {
+			return;
+		}
+		this.isTextLayoutDirty = false;
+		this.textLayoutWidth = width;
+
+		final int contentWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight() - (this.spacing << 1));
+		final int titleWidth = this.icon != null ? Math.max(0, contentWidth - this.iconSize - this.spacing) : contentWidth;
+
+		this.titleLayout = this.title != null ? newLayout(this.title, this.titlePaint, titleWidth, Layout.Alignment.ALIGN_CENTER) : null;
+		this.messageLayout = this.message != null ? newLayout(this.message, this.messagePaint, contentWidth, Layout.Alignment.ALIGN_NORMAL) : null;
+
+		final int buttonCount = visibleButtonCount();
+		final int buttonWidth = this.verticalActions || buttonCount == 0 ? contentWidth : contentWidth / buttonCount;
+		for (int index = 0; index < 3; ++index) {
+			final CharSequence text = this.buttonTexts[index];
+			this.buttonLayouts[index] = text != null ? newLayout(text, this.buttonPaint, buttonWidth, Layout.Alignment.ALIGN_CENTER) : null;
+		}
+	}
+
+	/**
+	 * Compute bounds of all items.
+	 *
+	 * @return Total height of the content (message is limited by `maxHeight`).
+	 */
+	private int computeBounds(int width, int maxHeight) {
+		final int left = getPaddingLeft();
+		final int right = width - getPaddingRight();
+		final int spacing = this.spacing;
+		final boolean rtl = getLayoutDirection() == LAYOUT_DIRECTION_RTL;
+		int top = getPaddingTop();
+
+		// Header: icon + title
+		if (this.titleLayout != null || this.icon != null) {
+			final int titleHeight = this.titleLayout != null ? this.titleLayout.getHeight() : 0;
+			final int headerHeight = Math.max(titleHeight, this.icon != null ? this.iconSize : 0) + (spacing << 1);
+			this.headerBounds.set(left, top, right, top + headerHeight);
+
+			// Icon is placed at start side
+			int titleLeft = left + spacing;
+			int titleRight = right - spacing;
+			if (this.icon != null) {
+				final int iconTop = top + ((headerHeight - this.iconSize) >> 1);
+				final int iconLeft = rtl ? titleRight - this.iconSize : titleLeft;
+				this.icon.setBounds(iconLeft, iconTop, iconLeft + this.iconSize, iconTop + this.iconSize);
+				if (rtl) {
+					titleRight -= this.iconSize + spacing;
+				}
+				else {
+					titleLeft += this.iconSize + spacing;
+				}
+			}
+			this.titleBounds.set(titleLeft, top + spacing, titleRight, top + headerHeight - spacing);
+			top += headerHeight;
+		}
+		else {
+			this.headerBounds.setEmpty();
+			this.titleBounds.setEmpty();
+		}
+
+		// Footer: buttons
+		final int buttonCount = visibleButtonCount();
+		final int footerHeight = buttonCount == 0 ? 0 : (this.verticalActions ? buttonCount * this.buttonHeight : this.buttonHeight);
+
+		// Body: message (limited by available height)
+		if (this.messageLayout != null) {
+			final int available = maxHeight == Integer.MAX_VALUE ? Integer.MAX_VALUE : maxHeight - getPaddingBottom() - footerHeight - top;
+			final int messageHeight = Math.max(0, Math.min(this.messageLayout.getHeight() + (spacing << 1), available));
+			this.messageBounds.set(left, top, right, top + messageHeight);
+			top += messageHeight;
+		}
+		else {
+			this.messageBounds.setEmpty();
+		}
+
+		// Buttons in layout order (row is laid out from start side)
+		final int[] order = this.verticalActions ? VERTICAL_BUTTON_ORDER : null;
+		final int buttonWidth = buttonCount == 0 ? 0 : (right - left) / buttonCount;
+		int buttonLeft = rtl ? right - buttonWidth : left;
+		int visualCount = 0;
+		for (int i = 0; i < 3; ++i) {
+			final int index = order != null ? order[i] : i;
+			final Rect bounds = this.buttonBounds[index];
+			if (this.buttonLayouts[index] == null) {
+				bounds.setEmpty();
+				continue;
+			}
+			if (this.verticalActions) {
+				bounds.set(left, top, right, top + this.buttonHeight);
+				top += this.buttonHeight;
+				this.visualButtons[visualCount++] = index;
+			}
+			else {
+				bounds.set(buttonLeft, top, buttonLeft + buttonWidth, top + this.buttonHeight);
+				buttonLeft += rtl ? -buttonWidth : buttonWidth;
+				this.visualButtons[visualCount++] = index;
+			}
+		}
+		// Visual order of a row is always left to right
+		if (rtl && ! this.verticalActions) {
+			for (int i = 0, j = visualCount - 1; i < j; ++i, --j) {
+				final int tmp = this.visualButtons[i];
+				this.visualButtons[i] = this.visualButtons[j];
+				this.visualButtons[j] = tmp;
+			}
+		}
+		this.visualButtonCount = visualCount;
+		if (! this.verticalActions && buttonCount > 0) {
+			top += this.buttonHeight;
+		}
+		this.messageScrollY = Math.max(0, Math.min(this.messageScrollY, maxMessageScroll()));
+
+		return top + getPaddingBottom();
+	}
+
+	private int maxMessageScroll() {
+		if (this.messageLayout == null) {
+			return 0;
+		}
+		return Math.max(0, this.messageLayout.getHeight() + (this.spacing << 1) - this.messageBounds.height());
+	}
+
+	private boolean scrollMessageBy(int dy) {
+		final int scrollY = Math.max(0, Math.min(this.messageScrollY + dy, maxMessageScroll()));
+		if (scrollY != this.messageScrollY) {
+			this.messageScrollY = scrollY;
+			invalidate(this.messageBounds);
+			return true;
+		}
+		return false;
+	}
+
+	private int visibleButtonCount() {
+		int count = 0;
+		for (CharSequence text : this.buttonTexts) {
+			if (text != null) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	@SuppressWarnings("deprecation")
+	private static StaticLayout newLayout(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+			return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+				.setAlignment(alignment)
+				.setIncludePad(false)
+				.build();
+		}
+		return new StaticLayout(text, paint, width, alignment, 1f, 0f, false);
+	}
+
+	// endregion Measure, Layout
+
+	// region Draw
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		final Paint fillPaint = this.fillPaint;
+
+		// Header
+		if (! this.headerBounds.isEmpty()) {
+			if (this.headerBackgroundColor != Color.TRANSPARENT) {
+				fillPaint.setColor(this.headerBackgroundColor);
+				canvas.drawRect(this.headerBounds, fillPaint);
+			}
+			if (this.icon != null) {
+				this.icon.draw(canvas);
+			}
+			if (this.titleLayout != null) {
+				drawLayout(canvas, this.titleLayout, this.titleBounds.left, this.titleBounds);
+			}
+		}
+
+		// Body
+		if (! this.messageBounds.isEmpty()) {
+			if (this.messageBackgroundColor != Color.TRANSPARENT) {
+				fillPaint.setColor(this.messageBackgroundColor);
+				canvas.drawRect(this.messageBounds, fillPaint);
+			}
+			final int saveCount = canvas.save();
+			canvas.clipRect(this.messageBounds);
+			canvas.translate(this.messageBounds.left + this.spacing, this.messageBounds.top + this.spacing - this.messageScrollY);
+			this.messageLayout.draw(canvas);
+			canvas.restoreToCount(saveCount);
+		}
+
+		// Footer
+		fillPaint.setColor(this.dividerColor);
+		for (int index = 0; index < 3; ++index) {
+			final Rect bounds = this.buttonBounds[index];
+			if (bounds.isEmpty()) {
+				continue;
+			}
+			canvas.drawRect(bounds.left, bounds.top, bounds.right, bounds.top + 1, fillPaint);
+			if (index == this.focusedButton && isFocused()) {
+				fillPaint.setColor(this.focusedColor);
+				canvas.drawRect(bounds, fillPaint);
+				fillPaint.setColor(this.dividerColor);
+			}
+			if (index == this.pressedButton) {
+				fillPaint.setColor(this.pressedColor);
+				canvas.drawRect(bounds, fillPaint);
+				fillPaint.setColor(this.dividerColor);
+			}
+			final StaticLayout layout = this.buttonLayouts[index];
+			drawLayout(canvas, layout, bounds.left + ((bounds.width() - layout.getWidth()) >> 1), bounds);
+		}
+	}
+
+	// Draw the layout at given left, and center it vertically in the bounds
+	private static void drawLayout(Canvas canvas, StaticLayout layout, int left, Rect bounds) {
+		final int saveCount = canvas.save();
+		canvas.translate(left, bounds.top + ((bounds.height() - layout.getHeight()) >> 1));
+		layout.draw(canvas);
+		canvas.restoreToCount(saveCount);
+	}
+
+	// endregion Draw
+
+	// region Touch
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		// Disabled (for eg,. while the dialog is exiting), still consume events but don't click buttons
+		if (! isEnabled()) {
+			setPressedButton(-1);
+			return true;
+		}
+		final int x = (int) event.getX();
+		final int y = (int) event.getY();
+
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN: {
+				this.touchDownY = this.lastTouchY = event.getY();
+				this.isScrollingMessage = false;
+				this.isTouchInMessage = this.messageBounds.contains(x, y) && maxMessageScroll() > 0;
+				setPressedButton(buttonAt(x, y));
+				break;
+			}
+			case MotionEvent.ACTION_MOVE: {
+				if (this.isTouchInMessage) {
+					if (! this.isScrollingMessage && Math.abs(event.getY() - this.touchDownY) > this.touchSlop) {
+						this.isScrollingMessage = true;
+						final ViewParent parent = getParent();
+						if (parent != null) {
+							parent.requestDisallowInterceptTouchEvent(true);
+						}
+					}
+					if (this.isScrollingMessage) {
+						scrollMessageBy((int) (this.lastTouchY - event.getY()));
+					}
+					this.lastTouchY = event.getY();
+				}
+				if (this.pressedButton >= 0 && ! this.buttonBounds[this.pressedButton].contains(x, y)) {
+					setPressedButton(-1);
+				}
+				break;
+			}
+			case MotionEvent.ACTION_UP: {
+				final int index = this.pressedButton;
+				setPressedButton(-1);
+				if (index >= 0 && this.buttonBounds[index].contains(x, y)) {
+					this.clickedButton = index;
+					performClick();
+				}
+				break;
+			}
+			case MotionEvent.ACTION_CANCEL: {
+				setPressedButton(-1);
+				break;
+			}
+		}
+		// Consume all events inside this view, so touch is not treated as outside of the dialog
+		return true;
+	}
+
+	/**
+	 * Click pending button (which was released by touch or key), this is also called for accessibility.
+	 */
+	@Override
+	public boolean performClick() {
+		final boolean handled = super.performClick();
+		final int index = this.clickedButton;
+		this.clickedButton = -1;
+		if (index >= 0) {
+			playSoundEffect(SoundEffectConstants.CLICK);
+			performButtonClick(index);
+			return true;
+		}
+		return handled;
+	}
+
+	private void setPressedButton(int index) {
+		if (this.pressedButton != index) {
+			if (this.pressedButton >= 0) {
+				invalidate(this.buttonBounds[this.pressedButton]);
+			}
+			this.pressedButton = index;
+			if (index >= 0) {
+				invalidate(this.buttonBounds[index]);
+			}
+		}
+	}
+
+	private int buttonAt(int x, int y) {
+		for (int index = 0; index < 3; ++index) {
+			if (this.buttonBounds[index].contains(x, y)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Perform click on the button.
+	 *
+	 * @param index One of `BUTTON_CANCEL`, `BUTTON_RESET`, `BUTTON_OK`.
+	 */
+	public void performButtonClick(int index) {
+		sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+		final DkRunner action = this.buttonActions[index];
+		if (action != null) {
+			action.run();
+		}
+	}
+
+	// endregion Touch
+
+	// region Keyboard
+
+	@Override
+	protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+		super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+
+		if (gainFocus && this.visualButtonCount > 0) {
+			final boolean fromEnd = direction == FOCUS_UP || direction == FOCUS_LEFT || direction == FOCUS_BACKWARD;
+			setFocusedButton(this.visualButtons[fromEnd ? this.visualButtonCount - 1 : 0]);
+		}
+		else {
+			setFocusedButton(-1);
+			setPressedButton(-1);
+		}
+	}
+
+	@Override
+	public boolean onKeyDown(int keyCode, KeyEvent event) {
+		if (isEnabled()) {
+			switch (keyCode) {
+				case KeyEvent.KEYCODE_DPAD_LEFT:
+				case KeyEvent.KEYCODE_DPAD_RIGHT: {
+					if (! this.verticalActions && moveFocusedButton(keyCode == KeyEvent.KEYCODE_DPAD_RIGHT ? 1 : -1)) {
+						return true;
+					}
+					break;
+				}
+				case KeyEvent.KEYCODE_DPAD_UP:
+				case KeyEvent.KEYCODE_DPAD_DOWN: {
+					final int delta = keyCode == KeyEvent.KEYCODE_DPAD_DOWN ? 1 : -1;
+					if (this.verticalActions && moveFocusedButton(delta)) {
+						return true;
+					}
+					// Otherwise scroll the message by one line
+					if (this.messageLayout != null && scrollMessageBy(delta * Math.round(this.messagePaint.getFontSpacing()))) {
+						return true;
+					}
+					break;
+				}
+				case KeyEvent.KEYCODE_DPAD_CENTER:
+				case KeyEvent.KEYCODE_ENTER:
+				case KeyEvent.KEYCODE_NUMPAD_ENTER:
+				case KeyEvent.KEYCODE_SPACE: {
+					if (this.focusedButton >= 0) {
+						setPressedButton(this.focusedButton);
+						return true;
+					}
+					break;
+				}
+			}
+		}
+		return super.onKeyDown(keyCode, event);
+	}
+
+	@Override
+	public boolean onKeyUp(int keyCode, KeyEvent event) {
+		switch (keyCode) {
+			case KeyEvent.KEYCODE_DPAD_CENTER:
+			case KeyEvent.KEYCODE_ENTER:
+			case KeyEvent.KEYCODE_NUMPAD_ENTER:
+			case KeyEvent.KEYCODE_SPACE: {
+				final int index = this.pressedButton;
+				if (index >= 0 && index == this.focusedButton) {
+					setPressedButton(-1);
+					if (isEnabled()) {
+						this.clickedButton = index;
+						performClick();
+					}
+					return true;
+				}
+				break;
+			}
+		}
+		return super.onKeyUp(keyCode, event);
+	}
+
+	// Move keyboard focus to next button in visual order, return false if no more button at that side
+	private boolean moveFocusedButton(int delta) {
+		int position = -1;
+		for (int i = this.visualButtonCount - 1; i >= 0; --i) {
+			if (this.visualButtons[i] == this.focusedButton) {
+				position = i;
+				break;
+			}
+		}
+		position = position < 0 ? (delta > 0 ? 0 : this.visualButtonCount - 1) : position + delta;
+		if (position < 0 || position >= this.visualButtonCount) {
+			return false;
+		}
+		setFocusedButton(this.visualButtons[position]);
+		return true;
+	}
+
+	private void setFocusedButton(int index) {
+		if (this.focusedButton != index) {
+			if (this.focusedButton >= 0) {
+				invalidate(this.buttonBounds[this.focusedButton]);
+			}
+			this.focusedButton = index;
+			if (index >= 0) {
+				invalidate(this.buttonBounds[index]);
+				sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_FOCUSED);
+			}
+		}
+	}
+
+	// endregion Keyboard
+
+	// region Accessibility
+
+	@Override
+	public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+		if (this.nodeProvider == null) {
+			this.nodeProvider = new VirtualNodeProvider();
+		}
+		return this.nodeProvider;
+	}
+
+	@Override
+	public boolean dispatchHoverEvent(MotionEvent event) {
+		final AccessibilityManager manager = (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+		if (manager == null || ! manager.isEnabled() || ! manager.isTouchExplorationEnabled()) {
+			return super.dispatchHoverEvent(event);
+		}
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_HOVER_ENTER:
+			case MotionEvent.ACTION_HOVER_MOVE: {
+				setHoveredId(virtualIdAt((int) event.getX(), (int) event.getY()));
+				return this.hoveredId != INVALID_ID;
+			}
+			case MotionEvent.ACTION_HOVER_EXIT: {
+				setHoveredId(INVALID_ID);
+				return true;
+			}
+		}
+		return super.dispatchHoverEvent(event);
+	}
+
+	private void setHoveredId(int virtualId) {
+		if (this.hoveredId != virtualId) {
+			final int previousId = this.hoveredId;
+			this.hoveredId = virtualId;
+			sendEventForVirtualView(virtualId, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+			sendEventForVirtualView(previousId, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+		}
+	}
+
+	private int virtualIdAt(int x, int y) {
+		final int button = buttonAt(x, y);
+		if (button >= 0) {
+			return button;
+		}
+		if (this.titleLayout != null && this.headerBounds.contains(x, y)) {
+			return VIRTUAL_ID_TITLE;
+		}
+		if (this.messageLayout != null && this.messageBounds.contains(x, y)) {
+			return VIRTUAL_ID_MESSAGE;
+		}
+		return INVALID_ID;
+	}
+
+	private CharSequence textOf(int virtualId) {
+		switch (virtualId) {
+			case VIRTUAL_ID_TITLE: return this.title;
+			case VIRTUAL_ID_MESSAGE: return this.message;
+			default: return this.buttonTexts[virtualId];
+		}
+	}
+
+	private Rect boundsOf(int virtualId) {
+		switch (virtualId) {
+			case VIRTUAL_ID_TITLE: return this.headerBounds;
+			case VIRTUAL_ID_MESSAGE: return this.messageBounds;
+			default: return this.buttonBounds[virtualId];
+		}
+	}
+
+	private void sendEventForVirtualView(int virtualId, int eventType) {
+		if (virtualId == INVALID_ID) {
+			return;
+		}
+		final ViewParent parent = getParent();
+		final AccessibilityManager manager = (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+		if (parent == null || manager == null || ! manager.isEnabled()) {
+			return;
+		}
+		final AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+		event.setPackageName(getContext().getPackageName());
+		event.setClassName(virtualId <= BUTTON_OK ? Button.class.getName() : TextView.class.getName());
+		event.setSource(this, virtualId);
+		event.getText().add(textOf(virtualId));
+		parent.requestSendAccessibilityEvent(this, event);
+	}
+
+	private class VirtualNodeProvider extends AccessibilityNodeProvider {
+		@Override
+		public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+			final DkLiteAlertView host = DkLiteAlertView.this;
+
+			if (virtualViewId == View.NO_ID) {
+				final AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(host);
+				onInitializeAccessibilityNodeInfo(info);
+				if (titleLayout != null) {
+					info.addChild(host, VIRTUAL_ID_TITLE);
+				}
+				if (messageLayout != null) {
+					info.addChild(host, VIRTUAL_ID_MESSAGE);
+				}
+				for (int index = 0; index < 3; ++index) {
+					if (buttonLayouts[index] != null) {
+						info.addChild(host, index);
+					}
+				}
+				return info;
+			}
+
+			final AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain();
+			final boolean isButton = virtualViewId <= BUTTON_OK;
+			info.setSource(host, virtualViewId);
+			info.setParent(host);
+			info.setPackageName(getContext().getPackageName());
+			info.setClassName(isButton ? Button.class.getName() : TextView.class.getName());
+			info.setText(textOf(virtualViewId));
+			info.setEnabled(isEnabled());
+			info.setVisibleToUser(true);
+
+			final Rect bounds = tmpRect;
+			bounds.set(boundsOf(virtualViewId));
+			info.setBoundsInParent(bounds);
+			getLocationOnScreen(tmpLocation);
+			bounds.offset(tmpLocation[0], tmpLocation[1]);
+			info.setBoundsInScreen(bounds);
+
+			if (isButton) {
+				info.setClickable(true);
+				info.setFocusable(true);
+				info.setFocused(virtualViewId == focusedButton && isFocused());
+				info.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+			}
+			else if (virtualViewId == VIRTUAL_ID_MESSAGE && maxMessageScroll() > 0) {
+				info.setScrollable(true);
+				if (messageScrollY > 0) {
+					info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD);
+				}
+				if (messageScrollY < maxMessageScroll()) {
+					info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+				}
+			}
+			if (accessibilityFocusedId == virtualViewId) {
+				info.setAccessibilityFocused(true);
+				info.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+			}
+			else {
+				info.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+			}
+			return info;
+		}
+
+		@Override
+		public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+			if (virtualViewId == View.NO_ID) {
+				return performAccessibilityAction(action, arguments);
+			}
+			switch (action) {
+				case AccessibilityNodeInfo.ACTION_CLICK: {
+					if (virtualViewId <= BUTTON_OK && isEnabled()) {
+						performButtonClick(virtualViewId);
+						return true;
+					}
+					return false;
+				}
+				case AccessibilityNodeInfo.ACTION_SCROLL_FORWARD:
+				case AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD: {
+					if (virtualViewId == VIRTUAL_ID_MESSAGE) {
+						final int page = Math.max(1, messageBounds.height() - (spacing << 1));
+						return scrollMessageBy(action == AccessibilityNodeInfo.ACTION_SCROLL_FORWARD ? page : -page);
+					}
+					return false;
+				}
+				case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS: {
+					if (accessibilityFocusedId != virtualViewId) {
+						accessibilityFocusedId = virtualViewId;
+						invalidate();
+						sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+					}
+					return true;
+				}
+				case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS: {
+					if (accessibilityFocusedId == virtualViewId) {
+						accessibilityFocusedId = INVALID_ID;
+						invalidate();
+						sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	// endregion Accessibility
+}
@@ -4,28 +4,120 @@
 
 package tool.compet.compactview;
 
+import android.app.Activity;
 import android.graphics.Color;
 import android.graphics.PorterDuff;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.savedstate.SavedStateRegistry;
+import androidx.savedstate.SavedStateRegistryOwner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import tool.compet.compactview.databinding.DkDialogPleaseWaitBinding;
+import tool.compet.core.DkLogcats;
+import tool.compet.core.DkUtils;
+import tool.compet.navigation.DkNavigatorOwner;
 
 /**
  * You can use this to show or close waiting dialog, or extends this to customize behaviors.
+ *
+ * For short operations, use `show()` and `dismiss()` instead of `open()` and `close()`: the dialog is added
+ * only when the operation is still running after show-delay time, and once shown, it is kept on screen
+ * at least min-visible time (to avoid flicker). Operations which finish before show-delay time do no fragment work.
+ *
+ * For blocking waits which must appear within one frame, use overlay mode via `showOverlay()` and `dismissOverlay()`:
+ * pre-built views (see `prepareOverlay()`) are attached to decor view of the activity directly, without fragment transaction.
+ * At most one overlay per activity is saved, call `restoreOverlay()` after `super.onCreate()` to show it again.
  */
 public abstract class DkPleaseWaitDialog extends DkCompactFragment<DkDialogPleaseWaitBinding> {
 	// Indicate this dialog is dismissable for some actions as: back pressed...
 	// Default value is false, so this dialog cannot be dismissed by user's cancel-action
 	protected boolean cancelable = false;
 
+	// Below setting can be set at any thread via setters, and they are applied to views at next frame
 	protected String message;
 	protected int messageResId = View.NO_ID;
 	protected int filterColor = Color.WHITE;
+	// Determinate progress, -1 for indeterminate (only loading indicator is shown)
+	protected int progress = -1;
+	protected int progressMax = 100;
+
+	private static final int DIRTY_MESSAGE = 1;
+	private static final int DIRTY_COLOR_FILTER = 1 << 1;
+	private static final int DIRTY_PROGRESS = 1 << 2;
+
+	// Pending changes which are not yet applied to views
+	private final AtomicInteger dirtyFlags = new AtomicInteger();
+	// Newest message which was set but not yet taken, text and resource id are replaced together
+	private final AtomicReference<Message> pendingMessage = new AtomicReference<>();
+	private final AtomicReference<Integer> pendingFilterColor = new AtomicReference<>();
+	// Newest progress which is packed as (max << 32) | progress
+	private final AtomicLong pendingProgress = new AtomicLong(((long) 100 << 32) | 0xffffffffL);
+	private final Choreographer.FrameCallback applyFrameCallback = frameTimeNanos -> applyPendingChanges();
+	private final Runnable postFrameAction = () -> Choreographer.getInstance().postFrameCallback(this.applyFrameCallback);
+
+	public static final long DEFAULT_SHOW_DELAY_MILLIS = 200;
+	public static final long DEFAULT_MIN_VISIBLE_MILLIS = 500;
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private long showDelayMillis = DEFAULT_SHOW_DELAY_MILLIS;
+	private long minVisibleMillis = DEFAULT_MIN_VISIBLE_MILLIS;
+	// Owner which this dialog will be opened in (after show delay), the dialog is opened only while it is started
+	private DkNavigatorOwner pendingOwner;
+	private boolean isShowDelayElapsed;
+	private final LifecycleEventObserver pendingOwnerObserver = (source, event) -> {
+		if (event == Lifecycle.Event.ON_START) {
+			// Owner was stopped (state saved) when show delay elapsed
+			if (this.isShowDelayElapsed) {
+				openNow();
+			}
+		}
+		else if (event == Lifecycle.Event.ON_DESTROY) {
+			cancelPendingOpen();
+		}
+	};
+	// Uptime when this dialog was opened via `show()`, 0 if not yet opened
+	private long openedAtMillis;
+	private final Runnable openAction = this::openNow;
+	private final Runnable closeAction = this::closeNow;
+	// Whether this dialog is managed by `DkWaitTracker` (kept after re-creation, so the tracker can adopt it again)
+	boolean isTracked;
+
+	private static final String OVERLAY_STATE_KEY = "DkPleaseWaitDialog.overlay";
+	private static final String OVERLAY_CLASS_KEY = "class";
+
+	// Overlay mode: views are attached to decor view of below activity
+	private Activity overlayActivity;
+	private DkDialogPleaseWaitBinding overlayBinder;
+	private View overlayPrevFocus;
+	private boolean isOverlayShowing;
+	private final SavedStateRegistry.SavedStateProvider overlayStateProvider = this::saveOverlayState;
+	// Drop overlay views when the activity is destroyed, so this dialog does not leak it
+	private final LifecycleEventObserver overlayActivityObserver = (source, event) -> {
+		if (event == Lifecycle.Event.ON_DESTROY) {
+			releaseOverlay();
+		}
+	};
 
 	@Override
 	public int layoutResourceId() {
@@ -44,15 +136,39 @@ public abstract class DkPleaseWaitDialog extends DkCompactFragment<DkDialogPleas
 		super.onCreate(savedInstanceState);
 
 		this.restoreInstanceState(savedInstanceState);
+
+		// Re-created dialog which was shown by wait tracker, the tracker dismisses it when operations were finished
+		if (savedInstanceState != null && this.isTracked) {
+			this.openedAtMillis = SystemClock.uptimeMillis();
+			DkWaitTracker.onDialogRecreated(this);
+		}
+	}
+
+	@Override
+	public void onDestroy() {
+		// Dialog was closed (by user, owner...), cancel pending actions
+		if (isRemoving() || (getActivity() != null && getActivity().isFinishing())) {
+			cancelPendingOpen();
+			mainHandler.removeCallbacks(this.closeAction);
+			this.openedAtMillis = 0;
+		}
+		super.onDestroy();
 	}
 
 	@CallSuper
 	protected void restoreInstanceState(@Nullable Bundle savedInstanceState) {
 		if (savedInstanceState != null) {
-			this.cancelable = savedInstanceState.getBoolean("DkPleaseWaitDialog.cancelable", false);
-			this.messageResId = savedInstanceState.getInt("DkPleaseWaitDialog.messageResId");
-			this.message = savedInstanceState.getString("DkPleaseWaitDialog.message");
-			this.filterColor = savedInstanceState.getInt("DkPleaseWaitDialog.filterColor");
+			final InstanceState state = savedInstanceState.getParcelable(InstanceState.KEY);
+			if (state != null) {
+				this.cancelable = state.cancelable;
+				this.isTracked = state.isTracked;
+				this.messageResId = state.messageResId;
+				this.message = state.message;
+				this.filterColor = state.filterColor;
+				this.progress = state.progress;
+				this.progressMax = state.progressMax;
+				this.pendingProgress.set(((long) state.progressMax << 32) | (state.progress & 0xffffffffL));
+			}
 		}
 	}
 
@@ -63,62 +179,535 @@ public abstract class DkPleaseWaitDialog extends DkCompactFragment<DkDialogPleas
 		this.storeInstanceState(outState);
 	}
 
-
 	@CallSuper
 	protected void storeInstanceState(@NonNull Bundle outState) {
-		outState.putBoolean("DkPleaseWaitDialog.cancelable", cancelable);
-		outState.putInt("DkPleaseWaitDialog.messageResId", messageResId);
-		outState.putString("DkPleaseWaitDialog.message", message);
-		outState.putInt("DkPleaseWaitDialog.filterColor", filterColor);
+		takePendingSettings();
+		outState.putParcelable(InstanceState.KEY, new InstanceState(this));
 	}
 
 	@Override
 	public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
 		super.onViewCreated(view, savedInstanceState);
 
-		// Set message
-		if (messageResId != View.NO_ID) {
-			message = getString(messageResId);
+		// Take newest setting which maybe set before this view was created
+		takePendingSettings();
+		decorAll(binder);
+	}
+
+	/**
+	 * Request to show this dialog. The dialog will be opened in child navigator of given owner (activity, fragment)
+	 * only if `dismiss()` is not called within show-delay time. If the owner is stopped at that time, the dialog is opened
+	 * when the owner is started again, and the request is dropped when the owner is destroyed. This can be called at any thread.
+	 */
+	public void show(DkNavigatorOwner owner) {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			mainHandler.post(() -> show(owner));
+			return;
+		}
+		// Show again while waiting for min-visible time
+		mainHandler.removeCallbacks(this.closeAction);
+
+		if (this.openedAtMillis != 0 || this.pendingOwner != null) {
+			return;
 		}
-		setMessage(message);
+		this.pendingOwner = owner;
+		this.isShowDelayElapsed = false;
+		lifecycleOf(owner).addObserver(this.pendingOwnerObserver);
 
-		// Set color filter for progress
-		setColorFilter(filterColor);
+		if (this.showDelayMillis > 0) {
+			mainHandler.postDelayed(this.openAction, this.showDelayMillis);
+		}
+		else {
+			openNow();
+		}
+	}
+
+	/**
+	 * Request to dismiss this dialog which was requested to show via `show()`.
+	 * If the dialog is not yet opened, nothing is done with fragment manager. Otherwise the dialog
+	 * is closed after it has been visible at least min-visible time. This can be called at any thread.
+	 */
+	public void dismiss() {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			mainHandler.post(this::dismiss);
+			return;
+		}
+		if (this.pendingOwner != null) {
+			cancelPendingOpen();
+			return;
+		}
+		if (this.openedAtMillis != 0) {
+			final long remainMillis = this.openedAtMillis + this.minVisibleMillis - SystemClock.uptimeMillis();
+			mainHandler.removeCallbacks(this.closeAction);
+			if (remainMillis > 0) {
+				mainHandler.postDelayed(this.closeAction, remainMillis);
+			}
+			else {
+				closeNow();
+			}
+		}
+	}
+
+	/**
+	 * @return true if this dialog was requested to show (via `show()`) and is not yet closed.
+	 */
+	boolean isShowRequested() {
+		return this.openedAtMillis != 0 || this.pendingOwner != null;
+	}
+
+	private void openNow() {
+		this.isShowDelayElapsed = true;
+
+		final DkNavigatorOwner owner = this.pendingOwner;
+		if (owner == null) {
+			return;
+		}
+		// Don't commit to fragment manager of destroyed or stopped (state saved) owner
+		final Lifecycle lifecycle = lifecycleOf(owner);
+		if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+			cancelPendingOpen();
+			return;
+		}
+		if (! lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+			return;
+		}
+		cancelPendingOpen();
+		if (open(owner.getChildNavigator())) {
+			this.openedAtMillis = SystemClock.uptimeMillis();
+		}
+	}
+
+	private void cancelPendingOpen() {
+		mainHandler.removeCallbacks(this.openAction);
+		if (this.pendingOwner != null) {
+			lifecycleOf(this.pendingOwner).removeObserver(this.pendingOwnerObserver);
+			this.pendingOwner = null;
+		}
 	}
 
-	//
-	// Get/Set region
-	//
+	private static Lifecycle lifecycleOf(DkNavigatorOwner owner) {
+		return ((LifecycleOwner) owner).getLifecycle();
+	}
+
+	private void closeNow() {
+		this.openedAtMillis = 0;
+		close();
+	}
+
+	// region Overlay
+
+	/**
+	 * Build overlay views ahead of time, so `showOverlay()` only attaches them. Must be called at main thread.
+	 * Note that built views are tied to given activity, and are released when the activity is destroyed.
+	 */
+	public DkPleaseWaitDialog prepareOverlay(Activity activity) {
+		if (this.overlayActivity != activity) {
+			releaseOverlay();
+
+			final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+			final DkDialogPleaseWaitBinding overlayBinder = DkDialogPleaseWaitBinding.inflate(LayoutInflater.from(activity), decorView, false);
+			final View root = overlayBinder.getRoot();
+
+			// Take focus to receive back key before the activity
+			root.setFocusableInTouchMode(true);
+			root.setOnKeyListener((v, keyCode, event) -> {
+				if (keyCode != KeyEvent.KEYCODE_BACK) {
+					return false;
+				}
+				if (this.cancelable && event.getAction() == KeyEvent.ACTION_UP) {
+					dismissOverlay();
+				}
+				return true;
+			});
+
+			this.overlayActivity = activity;
+			this.overlayBinder = overlayBinder;
+
+			if (activity instanceof LifecycleOwner) {
+				((LifecycleOwner) activity).getLifecycle().addObserver(this.overlayActivityObserver);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Dismiss overlay (if showing) and drop built views and the activity. This is called automatically
+	 * when the activity (as `LifecycleOwner`) is destroyed. Must be called at main thread.
+	 */
+	public void releaseOverlay() {
+		final Activity activity = this.overlayActivity;
+		if (activity == null) {
+			return;
+		}
+		dismissOverlay();
+
+		if (activity instanceof LifecycleOwner) {
+			((LifecycleOwner) activity).getLifecycle().removeObserver(this.overlayActivityObserver);
+		}
+		this.overlayActivity = null;
+		this.overlayBinder = null;
+		this.overlayPrevFocus = null;
+	}
+
+	/**
+	 * Show this dialog as overlay on given activity. When called at main thread, views are attached immediately
+	 * and drawn at next frame. This can be called at any thread.
+	 */
+	public void showOverlay(Activity activity) {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			mainHandler.post(() -> showOverlay(activity));
+			return;
+		}
+		if (isAdded()) {
+			DkUtils.complainAt(this, "Cannot show as overlay while opened as fragment");
+		}
+		if (this.isOverlayShowing && this.overlayActivity == activity) {
+			return;
+		}
+		prepareOverlay(activity);
+
+		final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+		final View root = this.overlayBinder.getRoot();
+
+		takePendingSettings();
+		decorAll(this.overlayBinder);
+		decorView.addView(root, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+		decorView.setTag(R.id.dk_please_wait_overlay, this);
+
+		this.overlayPrevFocus = decorView.findFocus();
+		root.requestFocus();
+		this.isOverlayShowing = true;
+
+		// Replace state of other overlay (if exists) since only one overlay per activity is saved
+		if (activity instanceof SavedStateRegistryOwner) {
+			final SavedStateRegistry registry = ((SavedStateRegistryOwner) activity).getSavedStateRegistry();
+			registry.unregisterSavedStateProvider(OVERLAY_STATE_KEY);
+			registry.registerSavedStateProvider(OVERLAY_STATE_KEY, this.overlayStateProvider);
+		}
+	}
+
+	/**
+	 * Detach overlay views (if showing) from the activity. Built views are kept to show again.
+	 * This can be called at any thread.
+	 */
+	public void dismissOverlay() {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			mainHandler.post(this::dismissOverlay);
+			return;
+		}
+		if (! this.isOverlayShowing) {
+			return;
+		}
+		this.isOverlayShowing = false;
+
+		final Activity activity = this.overlayActivity;
+		final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+
+		decorView.removeView(this.overlayBinder.getRoot());
+		if (decorView.getTag(R.id.dk_please_wait_overlay) == this) {
+			decorView.setTag(R.id.dk_please_wait_overlay, null);
+
+			if (activity instanceof SavedStateRegistryOwner) {
+				((SavedStateRegistryOwner) activity).getSavedStateRegistry().unregisterSavedStateProvider(OVERLAY_STATE_KEY);
+			}
+		}
+		if (this.overlayPrevFocus != null) {
+			this.overlayPrevFocus.requestFocus();
+			this.overlayPrevFocus = null;
+		}
+	}
+
+	public boolean isOverlayShowing() {
+		return this.isOverlayShowing;
+	}
+
+	/**
+	 * @return Dialog which is showing as overlay on given activity, or null if not found.
+	 */
+	@Nullable
+	public static DkPleaseWaitDialog findOverlay(Activity activity) {
+		return (DkPleaseWaitDialog) activity.getWindow().getDecorView().getTag(R.id.dk_please_wait_overlay);
+	}
+
+	/**
+	 * Show again the overlay which was showing when given activity saved its state.
+	 * Must be called after `super.onCreate()` of the activity, and the activity must be `SavedStateRegistryOwner`
+	 * (ComponentActivity, FragmentActivity...). Subclass must have public no-arg constructor (same as fragment).
+	 *
+	 * @return Restored dialog, or null if nothing to restore.
+	 */
+	@Nullable
+	public static DkPleaseWaitDialog restoreOverlay(Activity activity) {
+		if (! (activity instanceof SavedStateRegistryOwner)) {
+			return null;
+		}
+		final SavedStateRegistry registry = ((SavedStateRegistryOwner) activity).getSavedStateRegistry();
+		if (! registry.isRestored()) {
+			DkUtils.complainAt(DkPleaseWaitDialog.class, "Must restore overlay after `super.onCreate()` of the activity");
+			return null;
+		}
+		final Bundle state = registry.consumeRestoredStateForKey(OVERLAY_STATE_KEY);
+		if (state == null) {
+			return null;
+		}
+		final DkPleaseWaitDialog dialog;
+		try {
+			state.setClassLoader(activity.getClassLoader());
+			dialog = (DkPleaseWaitDialog) activity.getClassLoader()
+				.loadClass(state.getString(OVERLAY_CLASS_KEY))
+				.getDeclaredConstructor()
+				.newInstance();
+		}
+		catch (Exception e) {
+			DkLogcats.error(DkPleaseWaitDialog.class, e);
+			return null;
+		}
+		dialog.restoreInstanceState(state);
+		dialog.showOverlay(activity);
+
+		return dialog;
+	}
+
+	private Bundle saveOverlayState() {
+		final Bundle state = new Bundle();
+		state.putString(OVERLAY_CLASS_KEY, getClass().getName());
+		storeInstanceState(state);
+		return state;
+	}
+
+	// endregion Overlay
+
+	// region Get/Set
+
+	/**
+	 * @param showDelayMillis Time to wait before open the dialog when `show()` is called, default is 200 ms.
+	 */
+	public DkPleaseWaitDialog setShowDelay(long showDelayMillis) {
+		this.showDelayMillis = showDelayMillis;
+		return this;
+	}
+
+	/**
+	 * @param minVisibleMillis Min time to keep the dialog on screen after it was opened via `show()`, default is 500 ms.
+	 */
+	public DkPleaseWaitDialog setMinVisibleDuration(long minVisibleMillis) {
+		this.minVisibleMillis = minVisibleMillis;
+		return this;
+	}
 
 	public DkPleaseWaitDialog setCancellable(boolean cancelable) {
 		this.cancelable = cancelable;
 		return this;
 	}
 
+	/**
+	 * This can be called at any thread.
+	 */
 	public DkPleaseWaitDialog setMessage(int messageResId) {
-		this.messageResId = messageResId;
-		if (binder != null) {
-			binder.tvMessage.setText(messageResId);
-		}
+		this.pendingMessage.set(new Message(messageResId, null));
+		markDirty(DIRTY_MESSAGE);
 		return this;
 	}
 
+	/**
+	 * This can be called at any thread.
+	 */
 	public DkPleaseWaitDialog setMessage(String message) {
-		this.message = message;
-		if (binder != null) {
-			binder.tvMessage.setText(message);
-		}
+		this.pendingMessage.set(new Message(View.NO_ID, message));
+		markDirty(DIRTY_MESSAGE);
 		return this;
 	}
 
 	/**
-	 * @param color Set to null to turn off color filter
+	 * This can be called at any thread.
+	 *
+	 * @param color Color for the progress indicators.
 	 */
 	public DkPleaseWaitDialog setColorFilter(int color) {
-		this.filterColor = color;
+		this.pendingFilterColor.set(color);
+		markDirty(DIRTY_COLOR_FILTER);
+		return this;
+	}
+
+	/**
+	 * Show determinate progress. This can be called at any thread and at any rate,
+	 * only newest progress is applied, at most one time per frame.
+	 */
+	public DkPleaseWaitDialog setProgress(int progress, int max) {
+		this.pendingProgress.set(((long) max << 32) | (progress & 0xffffffffL));
+		markDirty(DIRTY_PROGRESS);
+		return this;
+	}
+
+	/**
+	 * Hide determinate progress (only loading indicator is shown). This can be called at any thread.
+	 */
+	public DkPleaseWaitDialog setIndeterminateProgress() {
+		return setProgress(-1, 100);
+	}
+
+	// endregion Get/Set
+
+	// region Private
+
+	// Buffer the change, and schedule to apply all changes at next frame (if not yet scheduled)
+	private void markDirty(int flag) {
+		int oldFlags;
+		do {
+			oldFlags = this.dirtyFlags.get();
+		}
+		while (! this.dirtyFlags.compareAndSet(oldFlags, oldFlags | flag));
+
+		if (oldFlags == 0) {
+			// Choreographer must be obtained at looper thread
+			if (Looper.myLooper() == Looper.getMainLooper()) {
+				this.postFrameAction.run();
+			}
+			else {
+				mainHandler.post(this.postFrameAction);
+			}
+		}
+	}
+
+	private void applyPendingChanges() {
+		final int flags = this.dirtyFlags.getAndSet(0);
+
+		takePendingSettings();
+		// Apply to fragment views and overlay views (if created)
 		if (binder != null) {
+			decor(binder, flags);
+		}
+		if (this.overlayBinder != null) {
+			decor(this.overlayBinder, flags);
+		}
+	}
+
+	// Copy newest settings to the fields which are used to decorate views, must be called at main thread
+	private void takePendingSettings() {
+		final Message message = this.pendingMessage.getAndSet(null);
+		if (message != null) {
+			this.messageResId = message.resId;
+			this.message = message.text;
+		}
+		final Integer filterColor = this.pendingFilterColor.getAndSet(null);
+		if (filterColor != null) {
+			this.filterColor = filterColor;
+		}
+		final long packed = this.pendingProgress.get();
+		this.progress = (int) packed;
+		this.progressMax = (int) (packed >>> 32);
+	}
+
+	private void decorAll(DkDialogPleaseWaitBinding binder) {
+		decor(binder, DIRTY_MESSAGE | DIRTY_COLOR_FILTER | DIRTY_PROGRESS);
+	}
+
+	private void decor(DkDialogPleaseWaitBinding binder, int flags) {
+		if ((flags & DIRTY_MESSAGE) != 0) {
+			if (this.messageResId != View.NO_ID) {
+				binder.tvMessage.setText(this.messageResId);
+			}
+			else {
+				binder.tvMessage.setText(this.message);
+			}
+		}
+		if ((flags & DIRTY_COLOR_FILTER) != 0) {
+			final int color = this.filterColor;
 			binder.pbLoading.getIndeterminateDrawable().setColorFilter(color, PorterDuff.Mode.MULTIPLY);
+			binder.pbProgress.getProgressDrawable().setColorFilter(color, PorterDuff.Mode.MULTIPLY);
 		}
-		return this;
+		if ((flags & DIRTY_PROGRESS) != 0) {
+			if (this.progress < 0) {
+				binder.pbProgress.setVisibility(View.GONE);
+			}
+			else {
+				binder.pbProgress.setMax(this.progressMax);
+				binder.pbProgress.setProgress(this.progress);
+				binder.pbProgress.setVisibility(View.VISIBLE);
+			}
+		}
+	}
+
+	// endregion Private
+
+	/**
+	 * Immutable message of the dialog, either resource id or text.
+	 */
+	private static final class Message {
+		final int resId;
+		final String text;
+
+		Message(int resId, String text) {
+			this.resId = resId;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Packed instance state of the dialog, restored in one lookup.
+	 */
+	public static class InstanceState implements Parcelable {
+		static final String KEY = "DkPleaseWaitDialog.state";
+
+		private static final int FLAG_CANCELABLE = 1;
+		private static final int FLAG_TRACKED = 1 << 1;
+
+		private final boolean cancelable;
+		private final boolean isTracked;
+		private final int messageResId;
+		private final int filterColor;
+		private final String message;
+		private final int progress;
+		private final int progressMax;
+
+		InstanceState(DkPleaseWaitDialog dialog) {
+			this.cancelable = dialog.cancelable;
+			this.isTracked = dialog.isTracked;
+			this.messageResId = dialog.messageResId;
+			this.filterColor = dialog.filterColor;
+			this.message = dialog.message;
+			this.progress = dialog.progress;
+			this.progressMax = dialog.progressMax;
+		}
+
+		protected InstanceState(Parcel in) {
+			final int flags = in.readInt();
+			this.cancelable = TheCompactParcels.isFlagSet(flags, FLAG_CANCELABLE);
+			this.isTracked = TheCompactParcels.isFlagSet(flags, FLAG_TRACKED);
+			this.messageResId = TheCompactParcels.readResIds(in, 1)[0];
+			this.filterColor = in.readInt();
+			this.message = in.readString();
+			this.progress = in.readInt();
+			this.progressMax = in.readInt();
+		}
+
+		@Override
+		public void writeToParcel(Parcel dest, int flags) {
+			int packed = TheCompactParcels.setFlag(0, FLAG_CANCELABLE, this.cancelable);
+			packed = TheCompactParcels.setFlag(packed, FLAG_TRACKED, this.isTracked);
+			dest.writeInt(packed);
+			TheCompactParcels.writeResIds(dest, this.messageResId);
+			dest.writeInt(this.filterColor);
+			dest.writeString(this.message);
+			dest.writeInt(this.progress);
+			dest.writeInt(this.progressMax);
+		}
+
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+
+		public static final Creator<InstanceState> CREATOR = new Creator<InstanceState>() {
+			@Override
+			public InstanceState createFromParcel(Parcel in) {
+				return new InstanceState(in);
+			}
+
+			@Override
+			public InstanceState[] newArray(int size) {
+				return new InstanceState[size];
+			}
+		};
 	}
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import tool.compet.core.DkUtils;
+import tool.compet.navigation.DkNavigatorOwner;
+
+/**
+ * Tracks waiting operations of a navigator owner (activity, fragment), and keeps exactly one
+ * please-wait dialog visible while at least one operation is running.
+ * - Operations can begin, end or update message at any thread.
+ * - Changes are merged and applied at main thread at most once per message loop, so only newest message is applied.
+ * - Dialog is shown and dismissed via `DkPleaseWaitDialog.show()`, `dismiss()`, so short operations do no fragment work.
+ * - Tracker is kept in view model of the owner, so it survives configuration change (the re-created dialog is adopted again),
+ * and is released when the owner is destroyed. The owner itself is referred weakly.
+ *
+ * Usage:
+ * <pre>
+ *    final DkWaitTracker tracker = DkWaitTracker.of(activity).setDialogFactory(MyWaitDialog::new);
+ *    tracker.begin();
+ *    try {
+ *       // do work...
+ *       tracker.updateMessage("Loading...");
+ *    }
+ *    finally {
+ *       tracker.end();
+ *    }
+ * </pre>
+ */
+public class DkWaitTracker {
+	public interface DialogFactory {
+		/**
+		 * Called at main thread to create new please-wait dialog.
+		 */
+		DkPleaseWaitDialog createDialog();
+	}
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private volatile DialogFactory dialogFactory;
+
+	// Number of running operations
+	private final AtomicInteger count = new AtomicInteger();
+	// Newest message which is not yet applied
+	private final AtomicReference<String> pendingMessage = new AtomicReference<>();
+	// Whether `sync()` was posted to main thread and not yet run
+	private final AtomicBoolean isSyncScheduled = new AtomicBoolean();
+	private final Runnable syncAction = this::sync;
+
+	// Below fields are accessed at main thread only
+	// Current owner instance (it is changed after configuration change)
+	private WeakReference<DkNavigatorOwner> ownerRef;
+	private DkPleaseWaitDialog dialog;
+	private String message;
+
+	private DkWaitTracker() {
+	}
+
+	/**
+	 * Obtain tracker of given navigator owner (activity, fragment), the owner must be `ViewModelStoreOwner`.
+	 * Must be called at main thread, but returned tracker can be used at any thread.
+	 */
+	public static DkWaitTracker of(DkNavigatorOwner owner) {
+		final DkWaitTracker tracker = new ViewModelProvider((ViewModelStoreOwner) owner, Holder.FACTORY)
+			.get(Holder.class)
+			.tracker;
+		tracker.attachOwner(owner);
+		return tracker;
+	}
+
+	/**
+	 * Called when the dialog which was shown by a tracker was re-created by fragment manager (after configuration change).
+	 */
+	static void onDialogRecreated(DkPleaseWaitDialog dialog) {
+		final Fragment parent = dialog.getParentFragment();
+		final Object owner = parent != null ? parent : dialog.getActivity();
+		if (owner instanceof DkNavigatorOwner && owner instanceof ViewModelStoreOwner) {
+			final DkWaitTracker tracker = of((DkNavigatorOwner) owner);
+			tracker.dialog = dialog;
+			// Dismiss the dialog if operations were finished (or the tracker was lost with the process)
+			tracker.scheduleSync();
+		}
+	}
+
+	/**
+	 * Set factory to create the dialog (`DkPleaseWaitDialog` is abstract).
+	 */
+	public DkWaitTracker setDialogFactory(DialogFactory dialogFactory) {
+		this.dialogFactory = dialogFactory;
+		return this;
+	}
+
+	/**
+	 * Mark an operation was started. Each call must be paired with `end()`.
+	 */
+	public void begin() {
+		if (this.count.getAndIncrement() == 0) {
+			scheduleSync();
+		}
+	}
+
+	/**
+	 * Mark an operation was started, and show given message.
+	 */
+	public void begin(String message) {
+		updateMessage(message);
+		begin();
+	}
+
+	/**
+	 * Mark an operation was finished.
+	 */
+	public void end() {
+		int current;
+		do {
+			current = this.count.get();
+			if (current == 0) {
+				DkUtils.complainAt(this, "Call `end()` without `begin()`");
+				return;
+			}
+		}
+		while (! this.count.compareAndSet(current, current - 1));
+
+		if (current == 1) {
+			scheduleSync();
+		}
+	}
+
+	/**
+	 * Update message of the dialog. When called many times, only newest message is applied.
+	 */
+	public void updateMessage(String message) {
+		this.pendingMessage.set(message);
+		scheduleSync();
+	}
+
+	/**
+	 * @return Number of running operations.
+	 */
+	public int activeCount() {
+		return this.count.get();
+	}
+
+	private void attachOwner(DkNavigatorOwner owner) {
+		if (this.ownerRef != null && this.ownerRef.get() == owner) {
+			return;
+		}
+		this.ownerRef = new WeakReference<>(owner);
+
+		if (owner instanceof LifecycleOwner) {
+			((LifecycleOwner) owner).getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+				// Dialog instance is dead with the owner (maybe re-created and adopted again later)
+				if (event == Lifecycle.Event.ON_DESTROY && this.ownerRef != null && this.ownerRef.get() == owner) {
+					this.dialog = null;
+				}
+			});
+		}
+		// Operations maybe running while there was no alive owner
+		if (this.count.get() > 0) {
+			scheduleSync();
+		}
+	}
+
+	// Called when the owner was destroyed (not by configuration change)
+	private void release() {
+		this.dialog = null;
+		this.ownerRef = null;
+	}
+
+	private void scheduleSync() {
+		if (this.isSyncScheduled.compareAndSet(false, true)) {
+			mainHandler.post(this.syncAction);
+		}
+	}
+
+	// Apply current state (count, message) to the dialog
+	private void sync() {
+		this.isSyncScheduled.set(false);
+
+		final String newMessage = this.pendingMessage.getAndSet(null);
+		if (newMessage != null) {
+			this.message = newMessage;
+		}
+
+		if (this.count.get() > 0) {
+			// Wait until new owner is attached via `of()`
+			final DkNavigatorOwner owner = this.ownerRef != null ? this.ownerRef.get() : null;
+			if (owner == null || (owner instanceof LifecycleOwner
+				&& ((LifecycleOwner) owner).getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED)) {
+				return;
+			}
+			// Create new dialog if previous one was closed
+			if (this.dialog == null || ! this.dialog.isShowRequested()) {
+				final DialogFactory factory = this.dialogFactory;
+				if (factory == null) {
+					DkUtils.complainAt(this, "Must set dialog factory via `setDialogFactory()`");
+					return;
+				}
+				this.dialog = factory.createDialog();
+				this.dialog.isTracked = true;
+				if (this.message != null) {
+					this.dialog.setMessage(this.message);
+				}
+			}
+			else if (newMessage != null) {
+				this.dialog.setMessage(newMessage);
+			}
+			// Also cancel pending dismiss of the dialog
+			this.dialog.show(owner);
+		}
+		else if (this.dialog != null) {
+			this.dialog.dismiss();
+			this.message = null;
+		}
+	}
+
+	private static final class Holder extends ViewModel {
+		static final ViewModelProvider.Factory FACTORY = new ViewModelProvider.Factory() {
+			@NonNull
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+				return (T) new Holder();
+			}
+		};
+
+		final DkWaitTracker tracker = new DkWaitTracker();
+
+		@Override
+		protected void onCleared() {
+			tracker.release();
+		}
+	}
+}
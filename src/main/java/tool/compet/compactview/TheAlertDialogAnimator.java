@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.view.View;
+import android.view.ViewPropertyAnimator;
+import android.view.animation.Interpolator;
+
+import androidx.core.view.OneShotPreDrawListener;
+
+/**
+ * Enter/Exit animation of `DkAlertDialog` content. Animations are run via `ViewPropertyAnimator` on
+ * render properties (scale, translation, alpha), so RenderThread can continue the animation when main thread is busy.
+ * Content is drawn into a hardware layer only while animating.
+ * Spring type is run by `TheCompactPhysics` (shared frame callback) instead.
+ * End action of exit animation is run exactly once, even if the animation was cancelled.
+ */
+final class TheAlertDialogAnimator {
+	private static final float ZOOM_START_SCALE = 0.85f;
+	private static final float SPRING_STIFFNESS = 600f;
+
+	private TheAlertDialogAnimator() {
+	}
+
+	/**
+	 * Cancel running animation of the content, end action of exit animation is run.
+	 */
+	static void cancel(View content) {
+		content.animate().cancel();
+		TheCompactPhysics.cancel(content);
+		finishExit(content);
+	}
+
+	/**
+	 * Animate the content from start state (depends on type) to normal state.
+	 */
+	static void enter(View content, int animType, Interpolator interpolator, long duration) {
+		cancel(content);
+
+		// Content may be reused after other exit animation, so reset all animated properties
+		content.setAlpha(1f);
+		content.setScaleX(1f);
+		content.setScaleY(1f);
+		content.setTranslationY(0f);
+
+		if (animType == DkAlertDialog.ANIM_SPRING) {
+			content.setScaleX(ZOOM_START_SCALE);
+			content.setScaleY(ZOOM_START_SCALE);
+			TheCompactPhysics.springTo(content, TheCompactPhysics.PROPERTY_SCALE, 1f,
+				SPRING_STIFFNESS, TheCompactPhysics.DAMPING_RATIO_MEDIUM_BOUNCY, null);
+		}
+		else if (animType == DkAlertDialog.ANIM_SWIPE_DOWN) {
+			// Translation is based on content height, so wait until it was laid out
+			if (content.getHeight() > 0) {
+				startSwipeIn(content, interpolator, duration);
+			}
+			else {
+				OneShotPreDrawListener.add(content, () -> startSwipeIn(content, interpolator, duration));
+			}
+		}
+		else {
+			content.setScaleX(ZOOM_START_SCALE);
+			content.setScaleY(ZOOM_START_SCALE);
+			prepare(content, interpolator, duration)
+				.scaleX(1f)
+				.scaleY(1f)
+				.start();
+		}
+	}
+
+	/**
+	 * Animate the content from current state to end state (depends on type),
+	 * then run `onEnd` (also when the animation was cancelled).
+	 */
+	static void exit(View content, int animType, Interpolator interpolator, long duration, Runnable onEnd) {
+		cancel(content);
+		content.setTag(R.id.dk_alert_exit_end_action, onEnd);
+
+		if (animType == DkAlertDialog.ANIM_SPRING) {
+			TheCompactPhysics.springTo(content, TheCompactPhysics.PROPERTY_SCALE, ZOOM_START_SCALE,
+				SPRING_STIFFNESS, TheCompactPhysics.DAMPING_RATIO_NO_BOUNCY, null);
+			TheCompactPhysics.springTo(content, TheCompactPhysics.PROPERTY_ALPHA, 0f,
+				SPRING_STIFFNESS, TheCompactPhysics.DAMPING_RATIO_NO_BOUNCY, () -> finishExit(content));
+			return;
+		}
+
+		final ViewPropertyAnimator animator = prepare(content, interpolator, duration).alpha(0f);
+		if (animType == DkAlertDialog.ANIM_SWIPE_DOWN) {
+			animator.translationY(content.getHeight() / 2f);
+		}
+		else {
+			animator.scaleX(ZOOM_START_SCALE).scaleY(ZOOM_START_SCALE);
+		}
+		// Listener is called at both end and cancel
+		animator.setListener(new AnimatorListenerAdapter() {
+			@Override
+			public void onAnimationEnd(Animator animation) {
+				finishExit(content);
+			}
+		}).start();
+	}
+
+	// Run end action of exit animation (if not yet run)
+	private static void finishExit(View content) {
+		final Runnable onEnd = (Runnable) content.getTag(R.id.dk_alert_exit_end_action);
+		if (onEnd != null) {
+			content.setTag(R.id.dk_alert_exit_end_action, null);
+			onEnd.run();
+		}
+	}
+
+	private static void startSwipeIn(View content, Interpolator interpolator, long duration) {
+		content.setTranslationY(-content.getHeight() / 2f);
+		prepare(content, interpolator, duration)
+			.translationY(0f)
+			.start();
+	}
+
+	private static ViewPropertyAnimator prepare(View content, Interpolator interpolator, long duration) {
+		return content.animate()
+			.setDuration(duration)
+			.setInterpolator(interpolator)
+			.setStartDelay(0)
+			.setListener(null)
+			.withLayer();
+	}
+}
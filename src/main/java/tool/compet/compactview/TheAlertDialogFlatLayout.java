@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.core.content.ContextCompat;
+
+import tool.compet.core.DkConfig;
+
+/**
+ * Inflation-free content of `DkAlertDialog`. This is one flat rounded view group which contains
+ * title, body (message or custom view) and action buttons, and measures, lays out them in single pass.
+ * Views have same ids as xml layouts of the dialog, and same (appcompat) theme attributes and button style.
+ */
+@SuppressLint("ViewConstructor")
+final class TheAlertDialogFlatLayout extends ViewGroup {
+	private final boolean verticalActions;
+	private final TheCompactFeatureHost featureHost;
+
+	final TextView vTitle;
+	final FrameLayout vBody;
+	final TextView vMessage;
+	// In order of layout
+	final TextView[] vButtons;
+
+	/**
+	 * Build full dialog layout (dimmed background + this content) in code.
+	 */
+	static FrameLayout buildDialogLayout(Context context, boolean verticalActions) {
+		final FrameLayout root = new FrameLayout(context);
+		root.setId(R.id.root);
+		root.setBackgroundColor(ContextCompat.getColor(context, R.color.semi_transparent_black));
+		root.setClickable(true);
+		root.setFocusable(true);
+
+		final TheAlertDialogFlatLayout content = new TheAlertDialogFlatLayout(context, verticalActions);
+		root.addView(content, new FrameLayout.LayoutParams(
+			ViewGroup.LayoutParams.MATCH_PARENT,
+			ViewGroup.LayoutParams.WRAP_CONTENT,
+			Gravity.CENTER));
+
+		return root;
+	}
+
+	private TheAlertDialogFlatLayout(Context context, boolean verticalActions) {
+		super(context);
+
+		this.verticalActions = verticalActions;
+		this.featureHost = new TheCompactFeatureHost(this, TheCompactFeatureHost.FEATURE_ROUND_CORNER);
+		this.featureHost.obtainRoundCornerFeature().setChildClipMode(true);
+
+		setId(R.id.dk_background);
+		setBackgroundColor(resolveColor(context, R.attr.dk_color_layout_bkg));
+
+		final float density = DkConfig.density();
+
+		// Header
+		final TextView vTitle = this.vTitle = new TextView(context);
+		vTitle.setId(R.id.dk_title);
+		vTitle.setTypeface(vTitle.getTypeface(), Typeface.BOLD);
+		vTitle.setTextColor(resolveColor(context, R.attr.colorPrimaryDark));
+		vTitle.setGravity(Gravity.CENTER);
+		final int titlePadding = (int) (12 * density);
+		vTitle.setPadding(titlePadding, titlePadding, titlePadding, titlePadding);
+		addView(vTitle, new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+
+		// Body
+		final FrameLayout vBody = this.vBody = new FrameLayout(context);
+		vBody.setId(R.id.dk_body);
+		final TextView vMessage = this.vMessage = new TextView(context);
+		vMessage.setId(R.id.dk_message);
+		vMessage.setGravity(Gravity.START | Gravity.CENTER_VERTICAL);
+		vMessage.setVerticalScrollBarEnabled(true);
+		final int messagePadding = (int) (8 * density);
+		vMessage.setPadding(messagePadding, messagePadding, messagePadding, messagePadding);
+		vMessage.setMinLines(3);
+		vBody.addView(vMessage, new FrameLayout.LayoutParams(
+			ViewGroup.LayoutParams.MATCH_PARENT,
+			ViewGroup.LayoutParams.WRAP_CONTENT,
+			Gravity.CENTER));
+		addView(vBody, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+
+		// Footer
+		if (verticalActions) {
+			this.vButtons = new TextView[] {
+				newButton(context, R.id.dk_ok, R.string.ok, R.attr.colorPrimaryDark),
+				newButton(context, R.id.dk_reset, R.string.reset, R.attr.colorPrimary),
+				newButton(context, R.id.dk_cancel, R.string.cancel, R.attr.colorAccent),
+			};
+		}
+		else {
+			this.vButtons = new TextView[] {
+				newButton(context, R.id.dk_cancel, R.string.cancel, R.attr.colorAccent),
+				newButton(context, R.id.dk_reset, R.string.reset, R.attr.colorAccent),
+				newButton(context, R.id.dk_ok, R.string.ok, R.attr.colorAccent),
+			};
+		}
+		for (TextView button : vButtons) {
+			addView(button, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+		}
+	}
+
+	private static TextView newButton(Context context, int id, int textResId, int colorAttr) {
+		final Button button = new Button(context, null, 0, R.style.Widget_AppCompat_Button_Borderless_Colored);
+		button.setId(id);
+		button.setText(textResId);
+		button.setTextColor(resolveColor(context, colorAttr));
+		return button;
+	}
+
+	static int resolveColor(Context context, int attr) {
+		final TypedValue value = new TypedValue();
+		if (context.getTheme().resolveAttribute(attr, value, true)) {
+			return value.resourceId != 0 ? ContextCompat.getColor(context, value.resourceId) : value.data;
+		}
+		return 0;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final int width = MeasureSpec.getSize(widthMeasureSpec);
+		final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+		final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+		final int contentWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+		final int exactContentWidth = MeasureSpec.makeMeasureSpec(contentWidth, MeasureSpec.EXACTLY);
+		final int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+		int usedHeight = getPaddingTop() + getPaddingBottom();
+
+		// Header
+		if (vTitle.getVisibility() != GONE) {
+			vTitle.measure(MeasureSpec.makeMeasureSpec(contentWidth, MeasureSpec.AT_MOST), unspecified);
+			usedHeight += vTitle.getMeasuredHeight();
+		}
+
+		// Footer
+		final TextView[] buttons = vButtons;
+		int visibleButtonCount = 0;
+		for (TextView button : buttons) {
+			if (button.getVisibility() != GONE) {
+				++visibleButtonCount;
+			}
+		}
+		if (visibleButtonCount > 0) {
+			if (verticalActions) {
+				for (TextView button : buttons) {
+					if (button.getVisibility() != GONE) {
+						button.measure(exactContentWidth, unspecified);
+						usedHeight += button.getMeasuredHeight();
+					}
+				}
+			}
+			else {
+				final int buttonWidth = contentWidth / visibleButtonCount;
+				final int buttonWidthSpec = MeasureSpec.makeMeasureSpec(buttonWidth, MeasureSpec.EXACTLY);
+				// Last button takes remainder pixels, so the row fills whole content width
+				final int lastButtonWidthSpec = MeasureSpec.makeMeasureSpec(
+					buttonWidth + contentWidth % visibleButtonCount, MeasureSpec.EXACTLY);
+				int rowHeight = 0;
+				int measuredCount = 0;
+				for (TextView button : buttons) {
+					if (button.getVisibility() != GONE) {
+						button.measure(++measuredCount == visibleButtonCount ? lastButtonWidthSpec : buttonWidthSpec, unspecified);
+						rowHeight = Math.max(rowHeight, button.getMeasuredHeight());
+					}
+				}
+				usedHeight += rowHeight;
+			}
+		}
+
+		// Body takes remaining height
+		if (vBody.getVisibility() != GONE) {
+			final int bodyHeightSpec;
+			if (heightMode == MeasureSpec.UNSPECIFIED) {
+				bodyHeightSpec = unspecified;
+			}
+			else {
+				final int remainHeight = Math.max(0, heightSize - usedHeight);
+				bodyHeightSpec = MeasureSpec.makeMeasureSpec(remainHeight, heightMode == MeasureSpec.EXACTLY ? MeasureSpec.EXACTLY : MeasureSpec.AT_MOST);
+			}
+			vBody.measure(exactContentWidth, bodyHeightSpec);
+			usedHeight += vBody.getMeasuredHeight();
+		}
+
+		final int height = heightMode == MeasureSpec.EXACTLY ? heightSize : usedHeight;
+		setMeasuredDimension(width, height);
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		final int left = getPaddingLeft();
+		final int contentWidth = r - l - left - getPaddingRight();
+		int top = getPaddingTop();
+
+		if (vTitle.getVisibility() != GONE) {
+			final int titleWidth = vTitle.getMeasuredWidth();
+			final int titleLeft = verticalActions ? left + ((contentWidth - titleWidth) >> 1) : left;
+			vTitle.layout(titleLeft, top, titleLeft + titleWidth, top + vTitle.getMeasuredHeight());
+			top += vTitle.getMeasuredHeight();
+		}
+
+		if (vBody.getVisibility() != GONE) {
+			vBody.layout(left, top, left + vBody.getMeasuredWidth(), top + vBody.getMeasuredHeight());
+			top += vBody.getMeasuredHeight();
+		}
+
+		int buttonLeft = left;
+		for (TextView button : vButtons) {
+			if (button.getVisibility() != GONE) {
+				final int bw = button.getMeasuredWidth();
+				final int bh = button.getMeasuredHeight();
+				button.layout(buttonLeft, top, buttonLeft + bw, top + bh);
+				if (verticalActions) {
+					top += bh;
+				}
+				else {
+					buttonLeft += bw;
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		featureHost.onSizeChanged(w, h);
+		super.onSizeChanged(w, h, oldw, oldh);
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		final int saveCount = featureHost.beforeDraw(canvas);
+		super.draw(canvas);
+		featureHost.afterDraw(canvas, saveCount);
+	}
+
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		featureHost.beforeDispatchDraw();
+		super.dispatchDraw(canvas);
+	}
+
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		final int saveCount = featureHost.clipChildIfNeeded(canvas, child);
+		final boolean result = super.drawChild(canvas, child, drawingTime);
+		if (saveCount >= 0) {
+			canvas.restoreToCount(saveCount);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean shouldDelayChildPressedState() {
+		return false;
+	}
+}
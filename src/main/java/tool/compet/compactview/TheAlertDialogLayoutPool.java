@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+import tool.compet.core.DkLogcats;
+
+/**
+ * Pool of pre-inflated layouts for `DkAlertDialog`. Layouts are inflated at a background thread
+ * (with its own cloned inflater), then handed to next dialog which is created in same context.
+ * Released layouts (after reset by the dialog) are returned to the pool.
+ * Layouts of a context are removed when its lifecycle owner (activity) is destroyed.
+ * Custom body views (set via `setBodyView()`) are also pooled here, keyed by their layout id.
+ *
+ * Pool is accessed at main thread only, except inflation.
+ */
+final class TheAlertDialogLayoutPool {
+	private static final int MAX_POOL_SIZE_PER_LAYOUT = 2;
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private static Handler inflateHandler;
+
+	// Layout resource id -> pooled layouts
+	private static final SparseArray<ArrayList<View>> pool = new SparseArray<>();
+	// Contexts whose lifecycle owner is being observed to clear its layouts at destroy time
+	private static final WeakHashMap<Context, Boolean> observedContexts = new WeakHashMap<>();
+
+	private TheAlertDialogLayoutPool() {
+	}
+
+	/**
+	 * Pre-inflate given layout at background until the pool has `count` layouts for it.
+	 * Must be called at main thread.
+	 *
+	 * @param context Context which will be used to inflate dialog, normally it is the activity.
+	 */
+	static void warmUp(Context context, int layoutResId, int count) {
+		count = Math.min(count, MAX_POOL_SIZE_PER_LAYOUT) - countOf(context, layoutResId);
+		if (count <= 0) {
+			return;
+		}
+		// LayoutInflater is not thread-safe, so we use own cloned inflater
+		final LayoutInflater inflater = LayoutInflater.from(context).cloneInContext(context);
+		final Handler handler = obtainInflateHandler();
+		observeDestroy(context);
+
+		for (int index = 0; index < count; ++index) {
+			handler.post(() -> {
+				try {
+					// Dialog layout and body view are placed in FrameLayout (fragment container, body container),
+					// so inflate against it to keep layout params of the root
+					final View root = inflater.inflate(layoutResId, new FrameLayout(context), false);
+					mainHandler.post(() -> add(layoutResId, root));
+				}
+				catch (Exception e) {
+					DkLogcats.error(TheAlertDialogLayoutPool.class, e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return Pre-inflated layout which was inflated with given context, or null if not found.
+	 */
+	static View acquire(Context context, int layoutResId) {
+		final ArrayList<View> roots = pool.get(layoutResId);
+		if (roots != null) {
+			for (int index = roots.size() - 1; index >= 0; --index) {
+				final View root = roots.get(index);
+				if (root.getContext() == context) {
+					roots.remove(index);
+					return root;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the layout (which was reset by the dialog) to the pool.
+	 * Layout will be pooled after it was detached from parent.
+	 */
+	static void release(int layoutResId, View root) {
+		mainHandler.post(() -> {
+			if (root.getParent() == null) {
+				add(layoutResId, root);
+			}
+		});
+	}
+
+	/**
+	 * Remove all pooled layouts which were inflated with given context.
+	 */
+	static void clear(Context context) {
+		for (int i = pool.size() - 1; i >= 0; --i) {
+			final ArrayList<View> roots = pool.valueAt(i);
+			for (int j = roots.size() - 1; j >= 0; --j) {
+				if (roots.get(j).getContext() == context) {
+					roots.remove(j);
+				}
+			}
+		}
+	}
+
+	private static void add(int layoutResId, View root) {
+		// Don't keep layouts of destroyed activity
+		final Context context = root.getContext();
+		if (context instanceof Activity && ((Activity) context).isDestroyed()) {
+			clear(context);
+			return;
+		}
+		ArrayList<View> roots = pool.get(layoutResId);
+		if (roots == null) {
+			pool.put(layoutResId, roots = new ArrayList<>(MAX_POOL_SIZE_PER_LAYOUT));
+		}
+		if (countOf(context, layoutResId) < MAX_POOL_SIZE_PER_LAYOUT) {
+			roots.add(root);
+			observeDestroy(context);
+		}
+	}
+
+	/**
+	 * Clear layouts of given context when its lifecycle owner is destroyed, so the pool does not pin the activity.
+	 * Context which has no lifecycle owner is cleared lazily at `add()`.
+	 */
+	private static void observeDestroy(Context context) {
+		if (observedContexts.containsKey(context)) {
+			return;
+		}
+		Context base = context;
+		while (! (base instanceof LifecycleOwner) && base instanceof ContextWrapper) {
+			base = ((ContextWrapper) base).getBaseContext();
+		}
+		if (! (base instanceof LifecycleOwner)) {
+			return;
+		}
+		final Lifecycle lifecycle = ((LifecycleOwner) base).getLifecycle();
+		if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+			return;
+		}
+		observedContexts.put(context, Boolean.TRUE);
+		lifecycle.addObserver((LifecycleEventObserver) (source, event) -> {
+			if (event == Lifecycle.Event.ON_DESTROY) {
+				observedContexts.remove(context);
+				clear(context);
+			}
+		});
+	}
+
+	private static int countOf(Context context, int layoutResId) {
+		final ArrayList<View> roots = pool.get(layoutResId);
+		int count = 0;
+		if (roots != null) {
+			for (int index = roots.size() - 1; index >= 0; --index) {
+				if (roots.get(index).getContext() == context) {
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static Handler obtainInflateHandler() {
+		if (inflateHandler == null) {
+			final HandlerThread thread = new HandlerThread("DkAlertDialogInflater", Process.THREAD_PRIORITY_BACKGROUND);
+			thread.start();
+			inflateHandler = new Handler(thread.getLooper());
+		}
+		return inflateHandler;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Adapter for streaming message mode of `DkAlertDialog`. Message is split into chunks (by line, and each line
+ * is limited to `CHUNK_SIZE` chars), so list view only need to layout visible chunks instead of whole message.
+ * Appended text only re-splits the last (unfinished) chunk.
+ */
+final class TheAlertDialogMessageAdapter extends BaseAdapter {
+	static final int CHUNK_SIZE = 1024;
+
+	private final TextView template;
+	private final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(CHUNK_SIZE);
+
+	/**
+	 * @param template Message view of the dialog, each chunk is shown in same text style as it.
+	 */
+	TheAlertDialogMessageAdapter(TextView template) {
+		this.template = template;
+	}
+
+	void setText(CharSequence text) {
+		this.chunks.setText(text);
+		notifyDataSetChanged();
+	}
+
+	void appendText(CharSequence text) {
+		this.chunks.appendText(text);
+		notifyDataSetChanged();
+	}
+
+	@Override
+	public int getCount() {
+		return this.chunks.size();
+	}
+
+	@Override
+	public Object getItem(int position) {
+		return this.chunks.get(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public boolean areAllItemsEnabled() {
+		return false;
+	}
+
+	@Override
+	public boolean isEnabled(int position) {
+		return false;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		TextView row = (TextView) convertView;
+		if (row == null) {
+			final TextView template = this.template;
+			row = new TextView(parent.getContext());
+			row.setTextSize(TypedValue.COMPLEX_UNIT_PX, template.getTextSize());
+			row.setTextColor(template.getTextColors());
+			row.setTypeface(template.getTypeface());
+			row.setLineSpacing(template.getLineSpacingExtra(), template.getLineSpacingMultiplier());
+			row.setPadding(template.getPaddingLeft(), 0, template.getPaddingRight(), 0);
+			row.setGravity(Gravity.START);
+		}
+		row.setText(this.chunks.get(position));
+		return row;
+	}
+}
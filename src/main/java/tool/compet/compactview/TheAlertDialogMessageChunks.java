@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import java.util.ArrayList;
+
+/**
+ * Chunks of streaming message of `DkAlertDialog`. Message is split by line, and each line is limited
+ * to `chunkSize` chars (surrogate pair is not split). Appended text only re-splits the last (unfinished) chunk.
+ */
+final class TheAlertDialogMessageChunks {
+	private final int chunkSize;
+	private final ArrayList<CharSequence> chunks = new ArrayList<>();
+	// Whether last chunk was not ended with line break, so next appended text continues it
+	private boolean isLastChunkOpen;
+
+	TheAlertDialogMessageChunks(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	void setText(CharSequence text) {
+		this.chunks.clear();
+		this.isLastChunkOpen = false;
+		if (text != null) {
+			split(text);
+		}
+	}
+
+	void appendText(CharSequence text) {
+		final ArrayList<CharSequence> chunks = this.chunks;
+		if (this.isLastChunkOpen && chunks.size() > 0) {
+			text = new StringBuilder(chunks.remove(chunks.size() - 1)).append(text);
+		}
+		split(text);
+	}
+
+	int size() {
+		return this.chunks.size();
+	}
+
+	CharSequence get(int index) {
+		return this.chunks.get(index);
+	}
+
+	private void split(CharSequence text) {
+		final int length = text.length();
+		int start = 0;
+
+		while (start < length) {
+			int end = Math.min(start + this.chunkSize, length);
+			final int lineBreak = indexOfLineBreak(text, start, end);
+
+			if (lineBreak >= 0) {
+				this.chunks.add(text.subSequence(start, lineBreak).toString());
+				this.isLastChunkOpen = false;
+				start = lineBreak + 1;
+			}
+			else {
+				// Don't split surrogate pair
+				if (end < length && end - start > 1 && Character.isHighSurrogate(text.charAt(end - 1))) {
+					--end;
+				}
+				this.chunks.add(text.subSequence(start, end).toString());
+				// Line which has exactly chunk size is ended here, skip its line break to not make empty chunk
+				if (end < length && text.charAt(end) == '\n') {
+					this.isLastChunkOpen = false;
+					start = end + 1;
+				}
+				else {
+					this.isLastChunkOpen = true;
+					start = end;
+				}
+			}
+		}
+	}
+
+	private static int indexOfLineBreak(CharSequence text, int start, int end) {
+		for (int index = start; index < end; ++index) {
+			if (text.charAt(index) == '\n') {
+				return index;
+			}
+		}
+		return -1;
+	}
+}
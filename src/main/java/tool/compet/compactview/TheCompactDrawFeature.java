@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Base of a draw feature (round corner, ripple, shadow...) which is plugged into `TheCompactFeatureHost`.
+ * Features are called in ascending order of `order`, and only when they are active in the host.
+ */
+public abstract class TheCompactDrawFeature {
+	// Bit flag of this feature in the host
+	final int flag;
+	// Smaller order will be called earlier at draw time
+	final int order;
+	// Host which this feature was installed into
+	TheCompactFeatureHost owner;
+
+	protected TheCompactDrawFeature(int flag, int order) {
+		this.flag = flag;
+		this.order = order;
+	}
+
+	/**
+	 * Whether this feature draws something at `beforeDraw()` or `afterDraw()`. Since a container host
+	 * without background skips `draw()`, the host is told to draw while an active feature returns true.
+	 */
+	protected boolean needsHostDraw() {
+		return true;
+	}
+
+	/**
+	 * Called when this feature is enabled or disabled in the host.
+	 */
+	protected void onEnabledChanged(boolean enabled) {
+	}
+
+	protected void onSizeChanged(int w, int h) {
+	}
+
+	/**
+	 * Called before the host draws itself (background, content, children...).
+	 */
+	protected void beforeDraw(Canvas canvas) {
+	}
+
+	/**
+	 * Called after the host drew itself.
+	 */
+	protected void afterDraw(Canvas canvas) {
+	}
+
+	/**
+	 * Called when drawable state (pressed, focused...) of the host was changed.
+	 */
+	protected void onDrawableStateChanged(int[] state) {
+	}
+
+	/**
+	 * Called when hotspot (touch position) of the host was changed.
+	 */
+	protected void onHotspotChanged(float x, float y) {
+	}
+
+	protected void jumpToCurrentState() {
+	}
+
+	/**
+	 * @return true if given drawable is owned by this feature.
+	 */
+	protected boolean verifyDrawable(Drawable who) {
+		return false;
+	}
+}
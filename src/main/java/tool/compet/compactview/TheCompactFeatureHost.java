@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * Delegate which is shared by compact widgets, it holds an ordered list of draw features
+ * and a bitmask of active features. When no feature is active, draw hot path just costs one branch.
+ *
+ * Usage in the host view:
+ * <pre>
+ *    public void draw(Canvas canvas) {
+ *       final int saveCount = featureHost.beforeDraw(canvas);
+ *       super.draw(canvas);
+ *       featureHost.afterDraw(canvas, saveCount);
+ *    }
+ * </pre>
+ *
+ * Feature accessors (enable, obtain...) are provided to the host view by implementing `DkCompactFeatureView`.
+ */
+public class TheCompactFeatureHost {
+	public static final int FEATURE_SHADOW = 1;
+	public static final int FEATURE_ROUND_CORNER = 1 << 1;
+	public static final int FEATURE_RIPPLE = 1 << 2;
+	public static final int FEATURE_PRESS_SCALE = 1 << 3;
+
+	// Draw order of features (shadow must be drawn before clipping)
+	static final int ORDER_SHADOW = 10;
+	static final int ORDER_ROUND_CORNER = 20;
+	static final int ORDER_RIPPLE = 30;
+	static final int ORDER_PRESS_SCALE = 40;
+
+	final View host;
+	// Bitmask of active (enabled and installed) features
+	private int activeFlags;
+	// Bitmask of enabled features (maybe not yet installed since we lazy create them)
+	private int enabledFlags;
+	// Installed features which are sorted by draw order
+	private final ArrayList<TheCompactDrawFeature> features = new ArrayList<>(2);
+	// True when we told the host (container) to draw since some active feature draws something
+	private boolean isWillNotDrawCleared;
+
+	private TheCompactFeatureRoundCorner featureRoundCorner;
+	private TheCompactFeatureRipple featureRipple;
+	private TheCompactFeatureShadow featureShadow;
+	private TheCompactFeaturePressScale featurePressScale;
+
+	public TheCompactFeatureHost(View host, int enabledFlags) {
+		this.host = host;
+		this.enabledFlags = enabledFlags;
+	}
+
+	// region View callbacks
+
+	public void onSizeChanged(int w, int h) {
+		// Install enabled features which are not yet created
+		if ((enabledFlags & FEATURE_ROUND_CORNER) != 0 && featureRoundCorner == null) {
+			obtainRoundCornerFeature();
+		}
+		if ((enabledFlags & FEATURE_RIPPLE) != 0 && featureRipple == null) {
+			obtainRippleFeature();
+		}
+		if ((enabledFlags & FEATURE_SHADOW) != 0 && featureShadow == null) {
+			obtainShadowFeature();
+		}
+		if ((enabledFlags & FEATURE_PRESS_SCALE) != 0 && featurePressScale == null) {
+			obtainPressScaleFeature();
+		}
+
+		if (activeFlags != 0) {
+			final ArrayList<TheCompactDrawFeature> features = this.features;
+			for (int index = 0, N = features.size(); index < N; ++index) {
+				final TheCompactDrawFeature feature = features.get(index);
+				if ((activeFlags & feature.flag) != 0) {
+					feature.onSizeChanged(w, h);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Save count of the canvas which must be passed to `afterDraw()`.
+	 */
+	public int beforeDraw(Canvas canvas) {
+		final int activeFlags = this.activeFlags;
+		if (activeFlags == 0) {
+			return -1;
+		}
+		final int saveCount = canvas.save();
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = 0, N = features.size(); index < N; ++index) {
+			final TheCompactDrawFeature feature = features.get(index);
+			if ((activeFlags & feature.flag) != 0) {
+				feature.beforeDraw(canvas);
+			}
+		}
+		return saveCount;
+	}
+
+	public void afterDraw(Canvas canvas, int saveCount) {
+		if (saveCount < 0) {
+			return;
+		}
+		final int activeFlags = this.activeFlags;
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = 0, N = features.size(); index < N; ++index) {
+			final TheCompactDrawFeature feature = features.get(index);
+			if ((activeFlags & feature.flag) != 0) {
+				feature.afterDraw(canvas);
+			}
+		}
+		canvas.restoreToCount(saveCount);
+	}
+
+	/**
+	 * Host must call this at `drawableStateChanged()`.
+	 */
+	public void onDrawableStateChanged(int[] state) {
+		final int activeFlags = this.activeFlags;
+		if (activeFlags == 0) {
+			return;
+		}
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = 0, N = features.size(); index < N; ++index) {
+			final TheCompactDrawFeature feature = features.get(index);
+			if ((activeFlags & feature.flag) != 0) {
+				feature.onDrawableStateChanged(state);
+			}
+		}
+	}
+
+	/**
+	 * Host must call this at `drawableHotspotChanged()`.
+	 */
+	public void onHotspotChanged(float x, float y) {
+		final int activeFlags = this.activeFlags;
+		if (activeFlags == 0) {
+			return;
+		}
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = 0, N = features.size(); index < N; ++index) {
+			final TheCompactDrawFeature feature = features.get(index);
+			if ((activeFlags & feature.flag) != 0) {
+				feature.onHotspotChanged(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Host must call this at `jumpDrawablesToCurrentState()`.
+	 */
+	public void jumpToCurrentState() {
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = 0, N = features.size(); index < N; ++index) {
+			features.get(index).jumpToCurrentState();
+		}
+	}
+
+	/**
+	 * Host must call this at `verifyDrawable()`.
+	 */
+	public boolean verifyDrawable(Drawable who) {
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = 0, N = features.size(); index < N; ++index) {
+			if (features.get(index).verifyDrawable(who)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// endregion View callbacks
+
+	// region Features
+
+	public boolean isFeatureEnabled(int flag) {
+		return (enabledFlags & flag) != 0;
+	}
+
+	public void setFeatureEnabled(int flag, boolean enable) {
+		if (isFeatureEnabled(flag) == enable) {
+			return;
+		}
+		if (enable) {
+			enabledFlags |= flag;
+		}
+		else {
+			enabledFlags &= ~flag;
+		}
+
+		// Enabled feature is installed immediately (except round corner which is installed at first layout)
+		if (enable && flag != FEATURE_ROUND_CORNER) {
+			obtainFeature(flag);
+		}
+		final TheCompactDrawFeature feature = findFeature(flag);
+		if (feature != null) {
+			if (enable) {
+				activeFlags |= flag;
+			}
+			else {
+				activeFlags &= ~flag;
+			}
+			feature.onEnabledChanged(enable);
+			updateWillNotDraw();
+			if (flag == FEATURE_ROUND_CORNER) {
+				onShapeChanged();
+			}
+		}
+		host.invalidate();
+	}
+
+	/**
+	 * Plug the feature into this host. The feature is active if its flag was enabled.
+	 */
+	public void install(TheCompactDrawFeature feature) {
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		int index = 0;
+		for (final int N = features.size(); index < N; ++index) {
+			if (features.get(index).order > feature.order) {
+				break;
+			}
+		}
+		features.add(index, feature);
+		feature.owner = this;
+
+		if ((enabledFlags & feature.flag) != 0) {
+			activeFlags |= feature.flag;
+			updateWillNotDraw();
+			if (feature.flag == FEATURE_ROUND_CORNER) {
+				onShapeChanged();
+			}
+		}
+		// The host maybe laid out before this feature is installed
+		if (host.getWidth() > 0 || host.getHeight() > 0) {
+			feature.onSizeChanged(host.getWidth(), host.getHeight());
+		}
+	}
+
+	/**
+	 * Container which has no background is marked as will-not-draw, so the framework skips its `draw()`
+	 * (and our `beforeDraw()`, `afterDraw()`). We let the container draw only while some active feature draws something.
+	 * Called when active features or what they draw were changed.
+	 */
+	void updateWillNotDraw() {
+		if (! (host instanceof ViewGroup)) {
+			return;
+		}
+		boolean needsDraw = false;
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = features.size() - 1; index >= 0; --index) {
+			final TheCompactDrawFeature feature = features.get(index);
+			if ((activeFlags & feature.flag) != 0 && feature.needsHostDraw()) {
+				needsDraw = true;
+				break;
+			}
+		}
+		if (needsDraw) {
+			if (! isWillNotDrawCleared && host.willNotDraw()) {
+				isWillNotDrawCleared = true;
+				host.setWillNotDraw(false);
+			}
+		}
+		else if (isWillNotDrawCleared) {
+			isWillNotDrawCleared = false;
+			host.setWillNotDraw(true);
+		}
+	}
+
+	public TheCompactDrawFeature findFeature(int flag) {
+		final ArrayList<TheCompactDrawFeature> features = this.features;
+		for (int index = features.size() - 1; index >= 0; --index) {
+			final TheCompactDrawFeature feature = features.get(index);
+			if (feature.flag == flag) {
+				return feature;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Obtain (install if not yet) the feature of given flag.
+	 */
+	public TheCompactDrawFeature obtainFeature(int flag) {
+		switch (flag) {
+			case FEATURE_SHADOW:
+				return obtainShadowFeature();
+			case FEATURE_ROUND_CORNER:
+				return obtainRoundCornerFeature();
+			case FEATURE_RIPPLE:
+				return obtainRippleFeature();
+			case FEATURE_PRESS_SCALE:
+				return obtainPressScaleFeature();
+			default:
+				throw new IllegalArgumentException("Unknown feature: " + flag);
+		}
+	}
+
+	public TheCompactFeatureRoundCorner obtainRoundCornerFeature() {
+		if (featureRoundCorner == null) {
+			install(featureRoundCorner = new TheCompactFeatureRoundCorner(host));
+		}
+		return featureRoundCorner;
+	}
+
+	public TheCompactFeatureRipple obtainRippleFeature() {
+		if (featureRipple == null) {
+			install(featureRipple = new TheCompactFeatureRipple(this));
+		}
+		return featureRipple;
+	}
+
+	public TheCompactFeatureShadow obtainShadowFeature() {
+		if (featureShadow == null) {
+			install(featureShadow = new TheCompactFeatureShadow(this));
+		}
+		return featureShadow;
+	}
+
+	public TheCompactFeaturePressScale obtainPressScaleFeature() {
+		if (featurePressScale == null) {
+			install(featurePressScale = new TheCompactFeaturePressScale(host));
+		}
+		return featurePressScale;
+	}
+
+	/**
+	 * Called when shape or clip mode of round corner feature was changed, so features which follow the shape update.
+	 */
+	void onShapeChanged() {
+		if (featureRipple != null) {
+			featureRipple.onShapeChanged();
+		}
+	}
+
+	/**
+	 * @return Round corner feature if it was installed and is active, otherwise null.
+	 */
+	TheCompactFeatureRoundCorner activeRoundCornerFeature() {
+		return (activeFlags & FEATURE_ROUND_CORNER) != 0 ? featureRoundCorner : null;
+	}
+
+	// endregion Features
+
+	// region Container
+
+	/**
+	 * Container host calls this at `dispatchDraw()`. Note that, `draw()` of a container which has
+	 * no background is skipped, so we prepare clip path at here.
+	 */
+	public void beforeDispatchDraw() {
+		final TheCompactFeatureRoundCorner roundCorner = activeRoundCornerFeature();
+		if (roundCorner != null) {
+			roundCorner.prepareGeometry();
+		}
+	}
+
+	/**
+	 * Container host calls this at `drawChild()`. If the child crosses a rounded corner (while the container
+	 * defers its clip to children), this clips the canvas and returns save count which must be restored
+	 * after the child was drawn. Otherwise returns -1 and nothing is clipped.
+	 */
+	public int clipChildIfNeeded(Canvas canvas, View child) {
+		final TheCompactFeatureRoundCorner roundCorner = activeRoundCornerFeature();
+		if (roundCorner == null || ! roundCorner.isDeferringClipToChildren() || ! roundCorner.shouldClipChild(child)) {
+			return -1;
+		}
+		final int saveCount = canvas.save();
+		roundCorner.clipChild(canvas);
+		return saveCount;
+	}
+
+	// endregion Container
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.view.View;
+
+/**
+ * Compact component for press feedback feature: the host is scaled down (with a spring) while pressed,
+ * and springs back when released. Springs of all hosts are stepped by `TheCompactPhysics` in one frame callback.
+ */
+public class TheCompactFeaturePressScale extends TheCompactDrawFeature {
+	private final View host;
+	private float pressedScale = 0.95f;
+	private float stiffness = TheCompactPhysics.STIFFNESS_MEDIUM;
+	private float dampingRatio = TheCompactPhysics.DAMPING_RATIO_MEDIUM_BOUNCY;
+	private boolean isPressed;
+
+	TheCompactFeaturePressScale(View host) {
+		super(TheCompactFeatureHost.FEATURE_PRESS_SCALE, TheCompactFeatureHost.ORDER_PRESS_SCALE);
+		this.host = host;
+	}
+
+	@Override
+	protected boolean needsHostDraw() {
+		return false;
+	}
+
+	@Override
+	protected void onEnabledChanged(boolean enabled) {
+		if (! enabled && isPressed) {
+			isPressed = false;
+			TheCompactPhysics.springTo(host, TheCompactPhysics.PROPERTY_SCALE, 1f, stiffness, dampingRatio, null);
+		}
+	}
+
+	@Override
+	protected void onDrawableStateChanged(int[] state) {
+		boolean pressed = false;
+		for (int attr : state) {
+			if (attr == android.R.attr.state_pressed) {
+				pressed = true;
+				break;
+			}
+		}
+		if (pressed != isPressed) {
+			isPressed = pressed;
+			TheCompactPhysics.springTo(host, TheCompactPhysics.PROPERTY_SCALE, pressed ? pressedScale : 1f, stiffness, dampingRatio, null);
+		}
+	}
+
+	@Override
+	protected void jumpToCurrentState() {
+		if (TheCompactPhysics.isAnimating(host, TheCompactPhysics.PROPERTY_SCALE)) {
+			TheCompactPhysics.cancel(host);
+			final float scale = isPressed ? pressedScale : 1f;
+			host.setScaleX(scale);
+			host.setScaleY(scale);
+		}
+	}
+
+	/**
+	 * @param pressedScale Scale of the host while pressed, default is 0.95.
+	 */
+	public TheCompactFeaturePressScale setPressedScale(float pressedScale) {
+		this.pressedScale = pressedScale;
+		return this;
+	}
+
+	/**
+	 * @param stiffness Stiffness of the spring, larger value makes faster animation.
+	 * @param dampingRatio 1 for no bounce, smaller value (> 0) makes more bounces.
+	 */
+	public TheCompactFeaturePressScale setSpring(float stiffness, float dampingRatio) {
+		this.stiffness = stiffness;
+		this.dampingRatio = dampingRatio;
+		return this;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.RippleDrawable;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Compact component for ripple foreground feature.
+ * The ripple is drawn after the host content, inside the clip of round-corner feature,
+ * so it follows rounded shape of the host. Ripple animation is run by the platform `RippleDrawable`
+ * (at RenderThread when hardware accelerated), and nothing is allocated per touch.
+ * Each host has its own `RippleDrawable` (platform ripple state cannot be shared), only color-state-lists
+ * and mask paint are shared across instances.
+ */
+public class TheCompactFeatureRipple extends TheCompactDrawFeature {
+	private static final int DEFAULT_RIPPLE_COLOR = Color.parseColor("#1f000000");
+
+	// Shared color-state-lists per ripple color (accessed at main thread)
+	private static final SparseArray<ColorStateList> colorStateLists = new SparseArray<>();
+
+	private final TheCompactFeatureHost featureHost;
+	private final ShapeMaskDrawable mask;
+	private final RippleDrawable ripple;
+	private int rippleColor = DEFAULT_RIPPLE_COLOR;
+
+	TheCompactFeatureRipple(TheCompactFeatureHost featureHost) {
+		super(TheCompactFeatureHost.FEATURE_RIPPLE, TheCompactFeatureHost.ORDER_RIPPLE);
+
+		this.featureHost = featureHost;
+		this.mask = new ShapeMaskDrawable(featureHost);
+		this.ripple = new RippleDrawable(obtainColorStateList(rippleColor), null, this.mask);
+		this.ripple.setCallback(featureHost.host);
+		this.ripple.setState(featureHost.host.getDrawableState());
+	}
+
+	@Override
+	protected void onEnabledChanged(boolean enabled) {
+		ripple.setVisible(enabled, false);
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h) {
+		ripple.setBounds(0, 0, w, h);
+	}
+
+	@Override
+	protected void afterDraw(Canvas canvas) {
+		ripple.draw(canvas);
+	}
+
+	@Override
+	protected void onDrawableStateChanged(int[] state) {
+		ripple.setState(state);
+	}
+
+	@Override
+	protected void onHotspotChanged(float x, float y) {
+		ripple.setHotspot(x, y);
+	}
+
+	@Override
+	protected void jumpToCurrentState() {
+		ripple.jumpToCurrentState();
+	}
+
+	@Override
+	protected boolean verifyDrawable(Drawable who) {
+		return who == ripple;
+	}
+
+	/**
+	 * Called when shape or clip mode of round-corner feature was changed.
+	 */
+	void onShapeChanged() {
+		mask.updateOpacity();
+		// Let the ripple drop its cached mask (opaque fast path, or masked with old shape)
+		ripple.invalidateSelf();
+	}
+
+	// region Get/Set
+
+	public int getRippleColor() {
+		return rippleColor;
+	}
+
+	public void setRippleColor(int rippleColor) {
+		this.rippleColor = rippleColor;
+		this.ripple.setColor(obtainColorStateList(rippleColor));
+	}
+
+	// endregion Get/Set
+
+	private static ColorStateList obtainColorStateList(int color) {
+		ColorStateList colorStateList = colorStateLists.get(color);
+		if (colorStateList == null) {
+			colorStateList = ColorStateList.valueOf(color);
+			colorStateLists.put(color, colorStateList);
+		}
+		return colorStateList;
+	}
+
+	/**
+	 * Mask of the ripple. When round-corner feature clips the host (via outline or path), the ripple
+	 * is already clipped, so this reports opaque to let `RippleDrawable` take its fast path.
+	 * Otherwise (the host renders rounded shape by itself, or the container host only clips its children),
+	 * this draws cached shape path.
+	 */
+	private static final class ShapeMaskDrawable extends Drawable {
+		// Shared by all masks since only coverage of the mask matters
+		private static final Paint maskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+		private final TheCompactFeatureHost featureHost;
+		private int opacity;
+
+		ShapeMaskDrawable(TheCompactFeatureHost featureHost) {
+			this.featureHost = featureHost;
+			updateOpacity();
+		}
+
+		void updateOpacity() {
+			this.opacity = isShapeMasked() ? PixelFormat.TRANSLUCENT : PixelFormat.OPAQUE;
+		}
+
+		// Whether the ripple is not clipped by the host, so the mask must draw the shape
+		private boolean isShapeMasked() {
+			final TheCompactFeatureRoundCorner roundCorner = featureHost.activeRoundCornerFeature();
+			return roundCorner != null && (! roundCorner.isClipEnabled || roundCorner.isDeferringClipToChildren());
+		}
+
+		@Override
+		public void draw(@NonNull Canvas canvas) {
+			if (isShapeMasked()) {
+				canvas.drawPath(featureHost.activeRoundCornerFeature().obtainShapePath(), maskPaint);
+			}
+			else {
+				canvas.drawRect(getBounds(), maskPaint);
+			}
+		}
+
+		@Override
+		public void setAlpha(int alpha) {
+		}
+
+		@Override
+		public void setColorFilter(@Nullable ColorFilter colorFilter) {
+		}
+
+		@Override
+		public int getOpacity() {
+			return opacity;
+		}
+	}
+}
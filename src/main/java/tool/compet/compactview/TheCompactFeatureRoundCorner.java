@@ -4,40 +4,103 @@
 
 package tool.compet.compactview;
 
-import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.RectF;
-import android.os.Build;
 import android.view.View;
+import android.view.ViewOutlineProvider;
 
 import tool.compet.core.DkConfig;
 
 /**
  * Compact component for rounded corner feature.
+ * When the shape is a circle or a round rect with same radius at all corners,
+ * we clip via view's outline (done at RenderThread), otherwise we fallback to clip with path.
+ *
+ * Changing setting at runtime only marks affected paths as dirty and invalidates the host view,
+ * the paths will be rebuilt lazily right before next draw (no layout pass is requested).
+ * Outline of the host is changed by setters and at size changed only (never at draw time),
+ * and previous outline setting of the host is restored when the outline is not needed anymore.
  */
-public class TheCompactFeatureRoundCorner {
+public class TheCompactFeatureRoundCorner extends TheCompactDrawFeature {
+	// Use outline clipping when possible, otherwise fallback to path clipping
+	public static final int CLIP_MODE_AUTO = 0;
+	// Always clip with path at each draw
+	public static final int CLIP_MODE_PATH = 1;
+
+	// Dirty flags of paths which need to be rebuilt before next draw
+	private static final int DIRTY_CLIP = 1;
+	private static final int DIRTY_BORDER = 1 << 1;
+	// Outline is not rebuilt lazily, this flag makes `markDirty()` apply it immediately
+	private static final int DIRTY_OUTLINE = 1 << 2;
+	private static final int DIRTY_SHAPE = DIRTY_CLIP | DIRTY_BORDER | DIRTY_OUTLINE;
+
+	final View host;
+	int width;
+	int height;
+	private int dirtyFlags = DIRTY_CLIP | DIRTY_BORDER;
+
 	int roundColor;
 	boolean isCircle;
 	float roundStrokeWidth;
 	float[] roundRadiusArr; // top-left, top-right, bottom-right, bottom-left
+	// Shared (immutable) paths from `TheCompactRoundPathCache`, DO NOT modify them
 	Path clipRoundPath;
 	Path roundPath;
+	// Lazy init when border is drawn
 	Paint roundPaint;
 
-	TheCompactFeatureRoundCorner(Context context) {
+	int clipMode = CLIP_MODE_AUTO;
+	// False when the host renders the shape by itself (for eg,. with shader), this feature just provides geometry
+	boolean isClipEnabled = true;
+	// True when the host is a container which clips each child (only when needed) instead of whole canvas
+	private boolean isChildClipMode;
+	// Whether outline provider was installed to the host
+	private boolean isOutlineInstalled;
+	// Outline setting of the host before we installed our provider
+	private ViewOutlineProvider savedOutlineProvider;
+	private boolean savedClipToOutline;
+	// Set by other features (for eg,. shadow) which need the outline even if we do not clip with it
+	private boolean isOutlineRequired;
+	// Set to false to prevent clipping with outline (for eg,. when shadow is drawn outside bounds)
+	private boolean isOutlineClipAllowed = true;
+	private final ViewOutlineProvider outlineProvider = new ViewOutlineProvider() {
+		@Override
+		public void getOutline(View view, Outline outline) {
+			final int w = view.getWidth();
+			final int h = view.getHeight();
+
+			if (isCircle) {
+				final int size = Math.min(w, h);
+				final int left = (w - size) >> 1;
+				final int top = (h - size) >> 1;
+				outline.setOval(left, top, left + size, top + size);
+			}
+			else if (hasUniformRadius()) {
+				outline.setRoundRect(0, 0, w, h, roundRadiusArr[0]);
+			}
+			else {
+				// Only for casting shadow since clipping is not supported with path outline
+				final Path path = TheCompactRoundPathCache.obtainClipPath(w, h, roundRadiusArr, false);
+				if (path.isConvex()) {
+					outline.setConvexPath(path);
+				}
+				else {
+					outline.setEmpty();
+				}
+			}
+		}
+	};
+
+	TheCompactFeatureRoundCorner(View host) {
+		super(TheCompactFeatureHost.FEATURE_ROUND_CORNER, TheCompactFeatureHost.ORDER_ROUND_CORNER);
+		this.host = host;
+
 		// Init with default values (user can change later if want)
-		this.clipRoundPath = new Path();
-		this.roundPath = new Path();
-		final int roundColor = this.roundColor = DkConfig.colorAccent(context);
+		this.roundColor = DkConfig.colorAccent(host.getContext());
 		final float roundRadius = 16 * DkConfig.density();
 
-		final Paint roundPaint = this.roundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		roundPaint.setStyle(Paint.Style.STROKE);
-		roundPaint.setColor(roundColor);
-		roundPaint.setStrokeWidth(roundStrokeWidth);
-
 		this.roundRadiusArr = new float[] {
 			roundRadius, roundRadius,
 			roundRadius, roundRadius,
@@ -46,36 +109,165 @@ public class TheCompactFeatureRoundCorner {
 		};
 	}
 
-	void onSizeChanged(int w, int h) {
-		// Clip round-path
-		clipRoundPath.reset();
+	@Override
+	protected boolean needsHostDraw() {
+		// At child clip mode, only border is drawn by this feature
+		return ! isChildClipMode || shouldDrawBorder();
+	}
+
+	@Override
+	protected void onEnabledChanged(boolean enabled) {
+		applyOutline(true);
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h) {
+		this.width = w;
+		this.height = h;
+		this.dirtyFlags |= DIRTY_CLIP | DIRTY_BORDER;
+		// View will rebuild installed outline by itself when size changed
+		applyOutline(false);
+	}
+
+	@Override
+	protected void beforeDraw(Canvas canvas) {
+		final boolean clipWithOutline = canClipWithOutline();
+		rebuildDirtyGeometry(clipWithOutline);
+
+		if (isClipEnabled && ! clipWithOutline && ! isDeferringClipToChildren()) {
+			canvas.clipPath(clipRoundPath);
+		}
+	}
+
+	void prepareGeometry() {
+		rebuildDirtyGeometry(canClipWithOutline());
+	}
+
+	/**
+	 * Whether path clipping is deferred to each child of the container host (see `shouldClipChild()`).
+	 * When the host has background, its corners are visible, so we still need to clip whole canvas.
+	 */
+	boolean isDeferringClipToChildren() {
+		return isChildClipMode && isClipEnabled && ! canClipWithOutline() && host.getBackground() == null;
+	}
+
+	/**
+	 * Fast check whether given child of the container host crosses a rounded corner.
+	 * Child which sits fully inside safe area (not overlap any corner) does not need to be clipped.
+	 */
+	boolean shouldClipChild(View child) {
+		// Transformed child, just clip it
+		if (child.getRotation() != 0 || child.getRotationX() != 0 || child.getRotationY() != 0
+			|| child.getScaleX() != 1 || child.getScaleY() != 1) {
+			return true;
+		}
+
+		final float left = child.getLeft() + child.getTranslationX();
+		final float top = child.getTop() + child.getTranslationY();
+		final float right = child.getRight() + child.getTranslationX();
+		final float bottom = child.getBottom() + child.getTranslationY();
+		final int w = width;
+		final int h = height;
+
+		// Outside of the host, let the path clip it
+		if (left < 0 || top < 0 || right > w || bottom > h) {
+			return true;
+		}
+
 		if (isCircle) {
-			clipRoundPath.addCircle(w >> 1, h >> 1, Math.min(w, h) >> 1, Path.Direction.CCW);
+			final float cx = w / 2f;
+			final float cy = h / 2f;
+			final float r = Math.min(w, h) / 2f;
+			final float dx = Math.max(cx - left, right - cx);
+			final float dy = Math.max(cy - top, bottom - cy);
+			return dx * dx + dy * dy > r * r;
 		}
-		else {
-			clipRoundPath.addRoundRect(new RectF(0, 0, w, h), roundRadiusArr, Path.Direction.CCW);
+
+		// Corner boxes: top-left, top-right, bottom-right, bottom-left (each has x-radius, y-radius)
+		final float[] radii = roundRadiusArr;
+		return (left < radii[0] && top < radii[1])
+			|| (right > w - radii[2] && top < radii[3])
+			|| (right > w - radii[4] && bottom > h - radii[5])
+			|| (left < radii[6] && bottom > h - radii[7]);
+	}
+
+	/**
+	 * Called by the container host at `drawChild()`, to clip the child with shape path.
+	 */
+	void clipChild(Canvas canvas) {
+		canvas.clipPath(clipRoundPath);
+	}
+
+	@Override
+	protected void afterDraw(Canvas canvas) {
+		// When clip is disabled, the host renders the shape and border by itself
+		if (isClipEnabled) {
+			drawBorder(canvas);
 		}
+	}
 
+	void drawBorder(Canvas canvas) {
 		if (shouldDrawBorder()) {
-			float m = DkConfig.density();
-			roundPath.reset();
-			roundPath.addRoundRect(new RectF(m, m, w - m, h - m), roundRadiusArr, Path.Direction.CCW);
+			rebuildDirtyGeometry(canClipWithOutline());
+			canvas.drawPath(roundPath, obtainRoundPaint());
 		}
 	}
 
-	void drawRoundedCorner(View view, Canvas canvas) {
-		//todo Buggy: setLayerType(LAYER_TYPE_SOFTWARE) makes redraw called repeatly !!!
-		if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.JELLY_BEAN_MR1) { // api 17-
-			view.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+	/**
+	 * Obtain (shared, immutable) border path of the host, or null if border is not drawn.
+	 */
+	Path obtainBorderPath() {
+		if (! shouldDrawBorder()) {
+			return null;
 		}
-		canvas.clipPath(clipRoundPath);
-		if (shouldDrawBorder()) {
-			canvas.drawPath(roundPath, roundPaint);
+		rebuildDirtyGeometry(canClipWithOutline());
+		return roundPath;
+	}
+
+	/**
+	 * Obtain (shared, immutable) shape path of the host, this does not affect clip mode.
+	 */
+	Path obtainShapePath() {
+		rebuildDirtyGeometry(canClipWithOutline());
+		if ((dirtyFlags & DIRTY_CLIP) != 0) {
+			clipRoundPath = TheCompactRoundPathCache.obtainClipPath(width, height, roundRadiusArr, isCircle);
+			this.dirtyFlags &= ~DIRTY_CLIP;
 		}
+		return clipRoundPath;
+	}
 
-		if (BuildConfig.DEBUG) {
-			//todo if present, should fix? :)
-//			DkLogcats.notice(this, "Buggy if this appears multiple times");
+	/**
+	 * Whether the shape is a round rect which has same radius at all corners.
+	 */
+	boolean hasUniformRadius() {
+		final float[] radii = roundRadiusArr;
+		final float r = radii[0];
+		for (int index = radii.length - 1; index > 0; --index) {
+			if (radii[index] != r) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Rebuild only dirty paths which are used by current clip mode. This does not touch the host,
+	 * so it is safe to be called at draw time.
+	 */
+	private void rebuildDirtyGeometry(boolean clipWithOutline) {
+		final int dirtyFlags = this.dirtyFlags;
+		if (dirtyFlags == 0) {
+			return;
+		}
+
+		if (isClipEnabled && ! clipWithOutline && (dirtyFlags & DIRTY_CLIP) != 0) {
+			clipRoundPath = TheCompactRoundPathCache.obtainClipPath(width, height, roundRadiusArr, isCircle);
+			this.dirtyFlags &= ~DIRTY_CLIP;
+		}
+
+		if (shouldDrawBorder() && (dirtyFlags & DIRTY_BORDER) != 0) {
+			roundPath = TheCompactRoundPathCache.obtainBorderPath(width, height, roundRadiusArr, isCircle, DkConfig.density());
+			this.dirtyFlags &= ~DIRTY_BORDER;
 		}
 	}
 
@@ -87,7 +279,10 @@ public class TheCompactFeatureRoundCorner {
 
 	public void setRoundColor(int roundColor) {
 		this.roundColor = roundColor;
-		this.roundPaint.setColor(roundColor);
+		if (this.roundPaint != null) {
+			this.roundPaint.setColor(roundColor);
+		}
+		host.invalidate();
 	}
 
 	public float getRoundStrokeWidth() {
@@ -99,7 +294,13 @@ public class TheCompactFeatureRoundCorner {
 	 */
 	public void setRoundStrokeWidth(float roundStrokeWidth) {
 		this.roundStrokeWidth = roundStrokeWidth * DkConfig.density();
-		this.roundPaint.setStrokeWidth(this.roundStrokeWidth);
+		if (this.roundPaint != null) {
+			this.roundPaint.setStrokeWidth(this.roundStrokeWidth);
+		}
+		markDirty(DIRTY_BORDER);
+		if (owner != null) {
+			owner.updateWillNotDraw();
+		}
 	}
 
 	public void setRoundRadius(float roundRadius) {
@@ -110,6 +311,7 @@ public class TheCompactFeatureRoundCorner {
 			radius, radius,
 			radius, radius,
 		};
+		markDirty(DIRTY_SHAPE);
 	}
 
 	public float[] getRoundRadiusArr() {
@@ -118,6 +320,7 @@ public class TheCompactFeatureRoundCorner {
 
 	public void setRoundRadiusArr(float[] roundRadiusArr) {
 		this.roundRadiusArr = roundRadiusArr;
+		markDirty(DIRTY_SHAPE);
 	}
 
 	public boolean isCircle() {
@@ -126,10 +329,149 @@ public class TheCompactFeatureRoundCorner {
 
 	public void setCircle(boolean circle) {
 		isCircle = circle;
+		markDirty(DIRTY_SHAPE);
+	}
+
+	public int getClipMode() {
+		return clipMode;
+	}
+
+	/**
+	 * @param clipMode One of `CLIP_MODE_AUTO` (default), `CLIP_MODE_PATH`.
+	 */
+	public void setClipMode(int clipMode) {
+		this.clipMode = clipMode;
+		markDirty(DIRTY_CLIP | DIRTY_OUTLINE);
+	}
+
+	/**
+	 * Container host calls this to clip each child which crosses corners (see `shouldClipChild()`) instead of whole canvas.
+	 */
+	void setChildClipMode(boolean childClipMode) {
+		if (this.isChildClipMode != childClipMode) {
+			this.isChildClipMode = childClipMode;
+			markDirty(DIRTY_CLIP);
+			if (owner != null) {
+				owner.updateWillNotDraw();
+			}
+		}
+	}
+
+	void setOutlineRequired(boolean outlineRequired) {
+		if (this.isOutlineRequired != outlineRequired) {
+			this.isOutlineRequired = outlineRequired;
+			markDirty(DIRTY_OUTLINE);
+		}
+	}
+
+	void setOutlineClipAllowed(boolean outlineClipAllowed) {
+		if (this.isOutlineClipAllowed != outlineClipAllowed) {
+			this.isOutlineClipAllowed = outlineClipAllowed;
+			markDirty(DIRTY_CLIP | DIRTY_OUTLINE);
+		}
+	}
+
+	/**
+	 * Whether current shape is convex, so it can be used as outline for casting shadow.
+	 */
+	boolean isConvexShape() {
+		if (isCircle || hasUniformRadius()) {
+			return true;
+		}
+		return TheCompactRoundPathCache.obtainClipPath(width, height, roundRadiusArr, false).isConvex();
+	}
+
+	/**
+	 * @param clipEnabled False to let the host render the shape by itself, this feature still draws border.
+	 */
+	void setClipEnabled(boolean clipEnabled) {
+		if (this.isClipEnabled != clipEnabled) {
+			this.isClipEnabled = clipEnabled;
+			markDirty(DIRTY_CLIP | DIRTY_OUTLINE);
+		}
 	}
 
 	// endregion Get/Set
 
+	/**
+	 * Outline clipping only supports circle or round rect with same radius at all corners.
+	 */
+	boolean canClipWithOutline() {
+		if (clipMode != CLIP_MODE_AUTO || ! isOutlineClipAllowed) {
+			return false;
+		}
+		return isCircle || hasUniformRadius();
+	}
+
+	/**
+	 * Mark paths as dirty and redraw the host, paths will be rebuilt before next draw.
+	 * Outline (if affected) is applied immediately.
+	 */
+	private void markDirty(int flags) {
+		this.dirtyFlags |= flags & ~DIRTY_OUTLINE;
+		if ((flags & DIRTY_OUTLINE) != 0) {
+			applyOutline(true);
+		}
+		if (owner != null) {
+			owner.onShapeChanged();
+		}
+		host.invalidate();
+	}
+
+	/**
+	 * Install, update or uninstall our outline provider for current setting. Must not be called at draw time
+	 * since changing outline of the host invalidates its display list.
+	 *
+	 * @param invalidate True to rebuild installed outline (shape was changed).
+	 */
+	private void applyOutline(boolean invalidate) {
+		// Outline is needed for clipping, or for casting shadow (without clipping)
+		final boolean active = owner != null && owner.activeRoundCornerFeature() == this;
+		final boolean clipOutline = isClipEnabled && canClipWithOutline();
+
+		if (active && (clipOutline || isOutlineRequired)) {
+			if (! isOutlineInstalled) {
+				installOutline(clipOutline);
+			}
+			else {
+				if (host.getClipToOutline() != clipOutline) {
+					host.setClipToOutline(clipOutline);
+				}
+				if (invalidate) {
+					host.invalidateOutline();
+				}
+			}
+		}
+		else if (isOutlineInstalled) {
+			uninstallOutline();
+		}
+	}
+
+	private void installOutline(boolean clipToOutline) {
+		isOutlineInstalled = true;
+		savedOutlineProvider = host.getOutlineProvider();
+		savedClipToOutline = host.getClipToOutline();
+		host.setOutlineProvider(outlineProvider);
+		host.setClipToOutline(clipToOutline);
+	}
+
+	private void uninstallOutline() {
+		isOutlineInstalled = false;
+		host.setClipToOutline(savedClipToOutline);
+		host.setOutlineProvider(savedOutlineProvider);
+		savedOutlineProvider = null;
+	}
+
+	Paint obtainRoundPaint() {
+		if (roundPaint == null) {
+			final Paint roundPaint = this.roundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			roundPaint.setStyle(Paint.Style.STROKE);
+			roundPaint.setColor(roundColor);
+			roundPaint.setStrokeWidth(roundStrokeWidth);
+		}
+		return roundPaint;
+	}
+
 	private boolean shouldDrawBorder() {
 		return roundStrokeWidth > 0;
 	}
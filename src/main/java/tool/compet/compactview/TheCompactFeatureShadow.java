@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.Build;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+
+import java.util.Arrays;
+
+import tool.compet.core.DkConfig;
+
+/**
+ * Compact component for shadow feature, the shadow follows rounded shape of round-corner feature.
+ * - Native elevation is used when the shape is convex and the platform can render shadow color.
+ * - Otherwise, a pre-blurred shadow bitmap is drawn behind the host. Blurred bitmaps are cached
+ * per (shape, blur radius, color), so we never re-blur at each frame.
+ *
+ * Note that, since bitmap shadow is drawn outside bounds of the host, parent of the host
+ * should not clip its children (see `ViewGroup.setClipChildren()`).
+ */
+public class TheCompactFeatureShadow extends TheCompactDrawFeature {
+	// Use native elevation when possible, otherwise fallback to bitmap shadow
+	public static final int SHADOW_MODE_AUTO = 0;
+	// Always draw pre-blurred bitmap shadow
+	public static final int SHADOW_MODE_BITMAP = 1;
+
+	private static final int DEFAULT_SHADOW_COLOR = Color.parseColor("#40000000");
+
+	// Use 1/32 of max memory (in KB) for caching shadow bitmaps
+	private static final LruCache<Key, Bitmap> cache = new LruCache<Key, Bitmap>((int) (Runtime.getRuntime().maxMemory() >> 15)) {
+		@Override
+		protected int sizeOf(Key key, Bitmap bitmap) {
+			return bitmap.getAllocationByteCount() >> 10;
+		}
+	};
+	private static final Key probe = new Key();
+	private static final Paint shadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+	private final TheCompactFeatureHost featureHost;
+	private int shadowMode = SHADOW_MODE_AUTO;
+	private int shadowColor = DEFAULT_SHADOW_COLOR;
+	private float elevation = 4 * DkConfig.density();
+	private float blurRadius; // 0 means derived from elevation
+	private float offsetX;
+	private float offsetY = Float.NaN; // NaN means derived from elevation
+
+	private boolean isNativeShadow;
+	// Outline provider of the host before we replaced it for native shadow
+	private ViewOutlineProvider savedOutlineProvider;
+	private boolean isOutlineProviderReplaced;
+	private int width;
+	private int height;
+
+	TheCompactFeatureShadow(TheCompactFeatureHost featureHost) {
+		super(TheCompactFeatureHost.FEATURE_SHADOW, TheCompactFeatureHost.ORDER_SHADOW);
+		this.featureHost = featureHost;
+	}
+
+	@Override
+	protected void onEnabledChanged(boolean enabled) {
+		if (enabled) {
+			applyMode();
+		}
+		else {
+			releaseNativeShadow();
+		}
+		featureHost.host.invalidate();
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h) {
+		this.width = w;
+		this.height = h;
+		markDirty();
+	}
+
+	@Override
+	protected void beforeDraw(Canvas canvas) {
+		if (isNativeShadow || width <= 0 || height <= 0) {
+			return;
+		}
+
+		// Lookup (without allocation) at each draw since shape of round-corner feature maybe changed
+		final Bitmap bitmap = obtainShadowBitmap();
+		final float pad = (float) Math.ceil(blurRadius());
+		canvas.drawBitmap(bitmap, offsetX - pad, offsetY() - pad, null);
+	}
+
+	/**
+	 * Decide which shadow (native or bitmap) will be used for current setting.
+	 * This changes elevation, outline of the host, so must not be called at draw time.
+	 */
+	private void applyMode() {
+		final View host = featureHost.host;
+		final TheCompactFeatureRoundCorner roundCorner = featureHost.activeRoundCornerFeature();
+		final boolean canRenderColor = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P || shadowColor == DEFAULT_SHADOW_COLOR;
+		final boolean convex = roundCorner == null || roundCorner.isConvexShape();
+
+		isNativeShadow = shadowMode == SHADOW_MODE_AUTO && blurRadius == 0 && canRenderColor && convex;
+
+		if (isNativeShadow) {
+			if (roundCorner != null) {
+				roundCorner.setOutlineClipAllowed(true);
+				roundCorner.setOutlineRequired(true);
+			}
+			else if (! isOutlineProviderReplaced) {
+				isOutlineProviderReplaced = true;
+				savedOutlineProvider = host.getOutlineProvider();
+				host.setOutlineProvider(ViewOutlineProvider.BOUNDS);
+			}
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+				host.setOutlineAmbientShadowColor(shadowColor);
+				host.setOutlineSpotShadowColor(shadowColor);
+			}
+			host.setElevation(elevation);
+		}
+		else {
+			host.setElevation(0);
+			restoreOutlineProvider();
+			if (roundCorner != null) {
+				// Outline clipping would also clip the shadow which is drawn outside bounds
+				roundCorner.setOutlineRequired(false);
+				roundCorner.setOutlineClipAllowed(false);
+			}
+		}
+	}
+
+	private void releaseNativeShadow() {
+		final TheCompactFeatureRoundCorner roundCorner = featureHost.activeRoundCornerFeature();
+		if (roundCorner != null) {
+			roundCorner.setOutlineRequired(false);
+			roundCorner.setOutlineClipAllowed(true);
+		}
+		featureHost.host.setElevation(0);
+		restoreOutlineProvider();
+	}
+
+	private void restoreOutlineProvider() {
+		if (isOutlineProviderReplaced) {
+			isOutlineProviderReplaced = false;
+			featureHost.host.setOutlineProvider(savedOutlineProvider);
+			savedOutlineProvider = null;
+		}
+	}
+
+	private Bitmap obtainShadowBitmap() {
+		final TheCompactFeatureRoundCorner roundCorner = featureHost.activeRoundCornerFeature();
+		final float blurRadius = blurRadius();
+		final int w = width;
+		final int h = height;
+		final boolean isCircle = roundCorner != null && roundCorner.isCircle;
+		final float[] radii = roundCorner != null ? roundCorner.roundRadiusArr : null;
+
+		probe.set(w, h, radii, isCircle, blurRadius, shadowColor);
+		Bitmap bitmap = cache.get(probe);
+		if (bitmap == null) {
+			final int pad = (int) Math.ceil(blurRadius);
+			bitmap = Bitmap.createBitmap(w + (pad << 1), h + (pad << 1), Bitmap.Config.ARGB_8888);
+
+			final Canvas canvas = new Canvas(bitmap);
+			canvas.translate(pad, pad);
+
+			// Blur mask filter only works with software canvas, which is what we have here
+			final Paint paint = shadowPaint;
+			paint.setColor(shadowColor);
+			paint.setMaskFilter(new BlurMaskFilter(blurRadius, BlurMaskFilter.Blur.NORMAL));
+			if (radii == null) {
+				canvas.drawRect(0, 0, w, h, paint);
+			}
+			else {
+				final Path path = TheCompactRoundPathCache.obtainClipPath(w, h, radii, isCircle);
+				canvas.drawPath(path, paint);
+			}
+			paint.setMaskFilter(null);
+
+			cache.put(probe.copy(), bitmap);
+		}
+		return bitmap;
+	}
+
+	private float blurRadius() {
+		return blurRadius > 0 ? blurRadius : Math.max(1f, elevation);
+	}
+
+	private float offsetY() {
+		return Float.isNaN(offsetY) ? elevation / 2 : offsetY;
+	}
+
+	/**
+	 * Apply setting change now (not at draw time), so the host is not invalidated while drawing.
+	 */
+	private void markDirty() {
+		if (featureHost.isFeatureEnabled(flag)) {
+			applyMode();
+		}
+		featureHost.host.invalidate();
+	}
+
+	// region Get/Set
+
+	public int getShadowMode() {
+		return shadowMode;
+	}
+
+	/**
+	 * @param shadowMode One of `SHADOW_MODE_AUTO` (default), `SHADOW_MODE_BITMAP`.
+	 */
+	public void setShadowMode(int shadowMode) {
+		this.shadowMode = shadowMode;
+		markDirty();
+	}
+
+	public int getShadowColor() {
+		return shadowColor;
+	}
+
+	public void setShadowColor(int shadowColor) {
+		this.shadowColor = shadowColor;
+		markDirty();
+	}
+
+	public float getElevation() {
+		return elevation;
+	}
+
+	/**
+	 * @param elevation In dp since we will multiply it with device density.
+	 */
+	public void setElevation(float elevation) {
+		this.elevation = elevation * DkConfig.density();
+		markDirty();
+	}
+
+	/**
+	 * Set blur radius of the shadow, this makes bitmap shadow is used since native shadow
+	 * does not support custom blur.
+	 *
+	 * @param blurRadius In dp since we will multiply it with device density. Set 0 to derive from elevation.
+	 */
+	public void setBlurRadius(float blurRadius) {
+		this.blurRadius = blurRadius * DkConfig.density();
+		markDirty();
+	}
+
+	/**
+	 * Offset of bitmap shadow.
+	 *
+	 * @param dx In dp since we will multiply it with device density.
+	 * @param dy In dp since we will multiply it with device density.
+	 */
+	public void setOffset(float dx, float dy) {
+		this.offsetX = dx * DkConfig.density();
+		this.offsetY = dy * DkConfig.density();
+		featureHost.host.invalidate();
+	}
+
+	// endregion Get/Set
+
+	private static final class Key {
+		int w;
+		int h;
+		float[] radii; // null for rect or circle
+		boolean isCircle;
+		float blurRadius;
+		int color;
+		int hash;
+
+		void set(int w, int h, float[] radii, boolean isCircle, float blurRadius, int color) {
+			this.w = w;
+			this.h = h;
+			this.radii = isCircle ? null : radii;
+			this.isCircle = isCircle;
+			this.blurRadius = blurRadius;
+			this.color = color;
+
+			int hash = 31 * w + h;
+			hash = 31 * hash + Arrays.hashCode(this.radii);
+			hash = 31 * hash + (isCircle ? 1 : 0);
+			hash = 31 * hash + Float.floatToIntBits(blurRadius);
+			hash = 31 * hash + color;
+			this.hash = hash;
+		}
+
+		Key copy() {
+			final Key key = new Key();
+			key.w = w;
+			key.h = h;
+			key.radii = radii == null ? null : radii.clone();
+			key.isCircle = isCircle;
+			key.blurRadius = blurRadius;
+			key.color = color;
+			key.hash = hash;
+			return key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (! (o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return w == other.w
+				&& h == other.h
+				&& isCircle == other.isCircle
+				&& blurRadius == other.blurRadius
+				&& color == other.color
+				&& Arrays.equals(radii, other.radii);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
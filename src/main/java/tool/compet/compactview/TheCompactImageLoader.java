@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import tool.compet.core.DkLogcats;
+
+/**
+ * Decodes image source (file, content uri, resource) at background, downsamples it to target size,
+ * and caches decoded bitmaps in a memory-bounded LRU cache which is keyed by (source, target size).
+ * Decoded bitmap is delivered to the view at main thread.
+ */
+final class TheCompactImageLoader {
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private static final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+		final Thread thread = new Thread(runnable, "DkCompactImageLoader");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1);
+		return thread;
+	});
+
+	// Use 1/8 of max memory (in KB) for caching bitmaps
+	private static final LruCache<String, Bitmap> cache = new LruCache<String, Bitmap>((int) (Runtime.getRuntime().maxMemory() >> 13)) {
+		@Override
+		protected int sizeOf(String key, Bitmap bitmap) {
+			return bitmap.getAllocationByteCount() >> 10;
+		}
+	};
+
+	private TheCompactImageLoader() {
+	}
+
+	static Bitmap getCached(Object source, int width, int height) {
+		return cache.get(keyOf(source, width, height));
+	}
+
+	/**
+	 * Start decoding the source for given view at background.
+	 * Caller must check cache via `getCached()` before call this.
+	 */
+	static Request load(DkCompactImageView view, Object source, int width, int height) {
+		final Request request = new Request(view, source, width, height);
+		request.future = executor.submit(request);
+		return request;
+	}
+
+	/**
+	 * Run given task at background thread of this loader (for eg,. rendering for the image view).
+	 */
+	static void execute(Runnable task) {
+		executor.execute(task);
+	}
+
+	static String keyOf(Object source, int width, int height) {
+		final String id;
+		if (source instanceof Integer) {
+			id = "res:" + source;
+		}
+		else if (source instanceof File) {
+			id = "file:" + ((File) source).getAbsolutePath();
+		}
+		else {
+			id = String.valueOf(source);
+		}
+		return id + '#' + width + 'x' + height;
+	}
+
+	static final class Request implements Runnable {
+		private final Context context;
+		private final Object source;
+		private final int width;
+		private final int height;
+		private volatile boolean cancelled;
+		private DkCompactImageView view; // accessed at main thread only
+		private Future<?> future;
+
+		Request(DkCompactImageView view, Object source, int width, int height) {
+			this.context = view.getContext().getApplicationContext();
+			this.view = view;
+			this.source = source;
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * Must be called at main thread.
+		 */
+		void cancel() {
+			cancelled = true;
+			view = null;
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				return;
+			}
+			Bitmap bitmap = null;
+			try {
+				bitmap = decode();
+			}
+			catch (Exception e) {
+				DkLogcats.error(this, e);
+			}
+
+			if (bitmap != null) {
+				cache.put(keyOf(source, width, height), bitmap);
+			}
+			if (! cancelled) {
+				final Bitmap result = bitmap;
+				mainHandler.post(() -> {
+					final DkCompactImageView view = this.view;
+					if (! cancelled && view != null) {
+						this.view = null;
+						view.onImageLoaded(this, result);
+					}
+				});
+			}
+		}
+
+		private Bitmap decode() throws IOException {
+			final BitmapFactory.Options options = new BitmapFactory.Options();
+
+			// Read size of the image
+			options.inJustDecodeBounds = true;
+			decode(options);
+			if (cancelled || options.outWidth <= 0 || options.outHeight <= 0) {
+				return null;
+			}
+
+			// Decode with sample size which makes the bitmap does not smaller than target size
+			options.inJustDecodeBounds = false;
+			options.inSampleSize = calcInSampleSize(options.outWidth, options.outHeight, width, height);
+			return decode(options);
+		}
+
+		private Bitmap decode(BitmapFactory.Options options) throws IOException {
+			if (source instanceof Integer) {
+				options.inScaled = false;
+				return BitmapFactory.decodeResource(context.getResources(), (Integer) source, options);
+			}
+			if (source instanceof File) {
+				return BitmapFactory.decodeFile(((File) source).getAbsolutePath(), options);
+			}
+			if (source instanceof Uri) {
+				try (InputStream is = context.getContentResolver().openInputStream((Uri) source)) {
+					return BitmapFactory.decodeStream(is, null, options);
+				}
+			}
+			throw new IllegalArgumentException("Unsupported image source: " + source);
+		}
+
+		private static int calcInSampleSize(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+			int inSampleSize = 1;
+			while ((srcWidth / (inSampleSize << 1)) >= dstWidth && (srcHeight / (inSampleSize << 1)) >= dstHeight) {
+				inSampleSize <<= 1;
+			}
+			return inSampleSize;
+		}
+	}
+}
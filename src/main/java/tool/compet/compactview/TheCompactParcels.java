@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.os.Parcel;
+
+/**
+ * Helper for packing instance state of compact views into small parcels.
+ */
+final class TheCompactParcels {
+	private static final int APP_PACKAGE_ID = 0x7f000000;
+
+	private TheCompactParcels() {
+	}
+
+	/**
+	 * Write resource ids as varints (into one byte array). Resource ids are mapped before coding:
+	 * 0 -> 0, NO_ID (-1) -> 1, app ids (0x7fTTEEEE) -> (0x00TTEEEE + 2),
+	 * so most ids take 1 byte (unset) or 3 bytes (app resource) instead of 4 bytes.
+	 */
+	static void writeResIds(Parcel dest, int... resIds) {
+		dest.writeByteArray(encodeResIds(resIds));
+	}
+
+	/**
+	 * Read resource ids which were written by `writeResIds()`.
+	 */
+	static int[] readResIds(Parcel in, int count) {
+		return decodeResIds(in.createByteArray(), count);
+	}
+
+	/**
+	 * Code resource ids as varints, see `writeResIds()`.
+	 */
+	static byte[] encodeResIds(int... resIds) {
+		final byte[] buffer = new byte[resIds.length * 5];
+		int pos = 0;
+		for (int resId : resIds) {
+			int value = encodeResId(resId);
+			while ((value & ~0x7f) != 0) {
+				buffer[pos++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			buffer[pos++] = (byte) value;
+		}
+		final byte[] result = new byte[pos];
+		System.arraycopy(buffer, 0, result, 0, pos);
+		return result;
+	}
+
+	/**
+	 * Decode resource ids which were coded by `encodeResIds()`.
+	 */
+	static int[] decodeResIds(byte[] buffer, int count) {
+		final int[] resIds = new int[count];
+		int pos = 0;
+		for (int index = 0; index < count; ++index) {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer[pos++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			resIds[index] = decodeResId(value);
+		}
+		return resIds;
+	}
+
+	/**
+	 * Pack or unpack boolean setting into given bit flags.
+	 *
+	 * @param flag Bit mask of the setting, for eg,. `1 << 3`.
+	 */
+	static int setFlag(int flags, int flag, boolean value) {
+		return value ? flags | flag : flags & ~flag;
+	}
+
+	static boolean isFlagSet(int flags, int flag) {
+		return (flags & flag) != 0;
+	}
+
+	private static int encodeResId(int resId) {
+		if (resId == 0) {
+			return 0;
+		}
+		if (resId == -1) {
+			return 1;
+		}
+		return (resId ^ APP_PACKAGE_ID) + 2;
+	}
+
+	private static int decodeResId(int value) {
+		if (value == 0) {
+			return 0;
+		}
+		if (value == 1) {
+			return -1;
+		}
+		return (value - 2) ^ APP_PACKAGE_ID;
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * Physics animations (spring, fling) of view properties. All running animations are stepped by
+ * one shared `Choreographer` frame callback, and their state is stored in parallel arrays (struct of arrays),
+ * so starting, retargeting or stepping an animation does not allocate.
+ *
+ * Must be used at main thread.
+ */
+final class TheCompactPhysics {
+	// Animated properties
+	static final int PROPERTY_SCALE = 0; // scaleX and scaleY
+	static final int PROPERTY_TRANSLATION_X = 1;
+	static final int PROPERTY_TRANSLATION_Y = 2;
+	static final int PROPERTY_ALPHA = 3;
+
+	// Default spring setting
+	static final float STIFFNESS_MEDIUM = 1500f;
+	static final float STIFFNESS_LOW = 200f;
+	static final float DAMPING_RATIO_NO_BOUNCY = 1f;
+	static final float DAMPING_RATIO_MEDIUM_BOUNCY = 0.5f;
+
+	private static final int TYPE_SPRING = 0;
+	private static final int TYPE_FLING = 1;
+
+	// Max time step (in seconds) of each integration, large frame time is divided into sub steps
+	private static final float MAX_STEP = 1 / 240f;
+	private static final float MAX_FRAME_TIME = 1 / 15f;
+
+	private static int count;
+	private static View[] views = new View[8];
+	private static Runnable[] endActions = new Runnable[8];
+	private static int[] properties = new int[8];
+	private static int[] types = new int[8];
+	private static float[] values = new float[8];
+	private static float[] velocities = new float[8];
+	// Target value (spring) or lower bound (fling)
+	private static float[] targets = new float[8];
+	// Upper bound (fling)
+	private static float[] maxValues = new float[8];
+	// Stiffness (spring) or friction (fling)
+	private static float[] stiffnesses = new float[8];
+	private static float[] dampings = new float[8];
+
+	// End actions of finished animations, they are run after stepping all slots
+	private static Runnable[] finishedActions = new Runnable[8];
+
+	private static long lastFrameTimeNanos;
+	private static boolean isFrameScheduled;
+
+	private static final Choreographer.FrameCallback frameCallback = TheCompactPhysics::doFrame;
+
+	private TheCompactPhysics() {
+	}
+
+	/**
+	 * Animate the property of given view to target value with a spring. If the property is being animated,
+	 * the animation is retargeted and current velocity is kept (for eg,. press then release quickly).
+	 *
+	 * @param dampingRatio 1 for no bounce, smaller value (> 0) makes more bounces.
+	 * @param endAction Run when the spring was settled, or the view was detached (then the value jumps to target).
+	 *                  Not run if the animation was cancelled.
+	 */
+	static void springTo(View view, int property, float target, float stiffness, float dampingRatio, Runnable endAction) {
+		int slot = indexOf(view, property);
+		if (slot < 0) {
+			slot = obtainSlot(view, property, TYPE_SPRING);
+		}
+		else if (types[slot] != TYPE_SPRING) {
+			types[slot] = TYPE_SPRING;
+		}
+		targets[slot] = target;
+		stiffnesses[slot] = stiffness;
+		dampings[slot] = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+		endActions[slot] = endAction;
+		scheduleFrame();
+	}
+
+	/**
+	 * Fling the property of given view with start velocity (unit per second), and decelerate with friction.
+	 * The value is clamped in [min, max].
+	 */
+	static void fling(View view, int property, float velocity, float friction, float min, float max, Runnable endAction) {
+		int slot = indexOf(view, property);
+		if (slot < 0) {
+			slot = obtainSlot(view, property, TYPE_FLING);
+		}
+		types[slot] = TYPE_FLING;
+		velocities[slot] = velocity;
+		targets[slot] = min;
+		maxValues[slot] = max;
+		stiffnesses[slot] = friction;
+		endActions[slot] = endAction;
+		scheduleFrame();
+	}
+
+	/**
+	 * Cancel all animations of given view. End actions are not run.
+	 */
+	static void cancel(View view) {
+		for (int slot = count - 1; slot >= 0; --slot) {
+			if (views[slot] == view) {
+				remove(slot);
+			}
+		}
+	}
+
+	static boolean isAnimating(View view, int property) {
+		return indexOf(view, property) >= 0;
+	}
+
+	private static int obtainSlot(View view, int property, int type) {
+		if (count == views.length) {
+			grow(count << 1);
+		}
+		final int slot = count++;
+		views[slot] = view;
+		properties[slot] = property;
+		types[slot] = type;
+		values[slot] = get(view, property);
+		velocities[slot] = 0f;
+		return slot;
+	}
+
+	private static int indexOf(View view, int property) {
+		for (int slot = count - 1; slot >= 0; --slot) {
+			if (views[slot] == view && properties[slot] == property) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	// Move last slot into removed slot
+	private static void remove(int slot) {
+		final int last = --count;
+		if (slot != last) {
+			views[slot] = views[last];
+			endActions[slot] = endActions[last];
+			properties[slot] = properties[last];
+			types[slot] = types[last];
+			values[slot] = values[last];
+			velocities[slot] = velocities[last];
+			targets[slot] = targets[last];
+			maxValues[slot] = maxValues[last];
+			stiffnesses[slot] = stiffnesses[last];
+			dampings[slot] = dampings[last];
+		}
+		views[last] = null;
+		endActions[last] = null;
+	}
+
+	private static void scheduleFrame() {
+		if (! isFrameScheduled) {
+			isFrameScheduled = true;
+			lastFrameTimeNanos = 0;
+			Choreographer.getInstance().postFrameCallback(frameCallback);
+		}
+	}
+
+	private static void doFrame(long frameTimeNanos) {
+		isFrameScheduled = false;
+
+		final float frameTime = lastFrameTimeNanos == 0 ? 1 / 60f : Math.min(MAX_FRAME_TIME, (frameTimeNanos - lastFrameTimeNanos) / 1e9f);
+		lastFrameTimeNanos = frameTimeNanos;
+
+		final int steps = (int) Math.ceil(frameTime / MAX_STEP);
+		final float dt = frameTime / steps;
+		int finishedCount = 0;
+
+		for (int slot = count - 1; slot >= 0; --slot) {
+			final View view = views[slot];
+			// View was removed from window, no need to animate, just jump spring to its target
+			// (for eg,. press-scale of recycled list item must not stay at pressed scale)
+			if (! view.isAttachedToWindow()) {
+				if (types[slot] == TYPE_SPRING) {
+					set(view, properties[slot], targets[slot]);
+				}
+				finishedCount = addFinishedAction(finishedCount, endActions[slot]);
+				remove(slot);
+				continue;
+			}
+
+			final int property = properties[slot];
+			final float threshold = thresholdOf(property);
+			float value = values[slot];
+			float velocity = velocities[slot];
+			boolean finished = false;
+
+			if (types[slot] == TYPE_SPRING) {
+				final float target = targets[slot];
+				final float stiffness = stiffnesses[slot];
+				final float damping = dampings[slot];
+				// Semi-implicit euler with mass = 1
+				for (int step = 0; step < steps; ++step) {
+					velocity += (-stiffness * (value - target) - damping * velocity) * dt;
+					value += velocity * dt;
+				}
+				if (Math.abs(value - target) < threshold && Math.abs(velocity) < threshold * 60) {
+					value = target;
+					finished = true;
+				}
+			}
+			else {
+				final float min = targets[slot];
+				final float max = maxValues[slot];
+				velocity *= (float) Math.exp(-stiffnesses[slot] * frameTime);
+				value += velocity * frameTime;
+				if (value <= min || value >= max) {
+					value = Math.max(min, Math.min(max, value));
+					finished = true;
+				}
+				else if (Math.abs(velocity) < threshold * 60) {
+					finished = true;
+				}
+			}
+
+			set(view, property, value);
+
+			if (finished) {
+				finishedCount = addFinishedAction(finishedCount, endActions[slot]);
+				remove(slot);
+			}
+			else {
+				values[slot] = value;
+				velocities[slot] = velocity;
+			}
+		}
+
+		if (count > 0) {
+			isFrameScheduled = true;
+			Choreographer.getInstance().postFrameCallback(frameCallback);
+		}
+
+		// Run end actions after the loop since they may start or cancel animations (change the slots)
+		final Runnable[] finishedActions = TheCompactPhysics.finishedActions;
+		for (int index = 0; index < finishedCount; ++index) {
+			final Runnable endAction = finishedActions[index];
+			finishedActions[index] = null;
+			endAction.run();
+		}
+	}
+
+	private static int addFinishedAction(int finishedCount, Runnable endAction) {
+		if (endAction == null) {
+			return finishedCount;
+		}
+		if (finishedCount == finishedActions.length) {
+			final Runnable[] newActions = new Runnable[finishedCount << 1];
+			System.arraycopy(finishedActions, 0, newActions, 0, finishedCount);
+			finishedActions = newActions;
+		}
+		finishedActions[finishedCount] = endAction;
+		return finishedCount + 1;
+	}
+
+	private static float thresholdOf(int property) {
+		return property == PROPERTY_TRANSLATION_X || property == PROPERTY_TRANSLATION_Y ? 0.5f : 0.002f;
+	}
+
+	private static float get(View view, int property) {
+		switch (property) {
+			case PROPERTY_SCALE: return view.getScaleX();
+			case PROPERTY_TRANSLATION_X: return view.getTranslationX();
+			case PROPERTY_TRANSLATION_Y: return view.getTranslationY();
+			default: return view.getAlpha();
+		}
+	}
+
+	private static void set(View view, int property, float value) {
+		switch (property) {
+			case PROPERTY_SCALE: {
+				view.setScaleX(value);
+				view.setScaleY(value);
+				break;
+			}
+			case PROPERTY_TRANSLATION_X: {
+				view.setTranslationX(value);
+				break;
+			}
+			case PROPERTY_TRANSLATION_Y: {
+				view.setTranslationY(value);
+				break;
+			}
+			default: {
+				view.setAlpha(Math.max(0f, Math.min(1f, value)));
+			}
+		}
+	}
+
+	private static void grow(int capacity) {
+		views = copyOf(views, new View[capacity]);
+		endActions = copyOf(endActions, new Runnable[capacity]);
+		properties = copyOf(properties, new int[capacity]);
+		types = copyOf(types, new int[capacity]);
+		values = copyOf(values, new float[capacity]);
+		velocities = copyOf(velocities, new float[capacity]);
+		targets = copyOf(targets, new float[capacity]);
+		maxValues = copyOf(maxValues, new float[capacity]);
+		stiffnesses = copyOf(stiffnesses, new float[capacity]);
+		dampings = copyOf(dampings, new float[capacity]);
+	}
+
+	private static <T> T copyOf(T src, T dst) {
+		System.arraycopy(src, 0, dst, 0, count);
+		return dst;
+	}
+}
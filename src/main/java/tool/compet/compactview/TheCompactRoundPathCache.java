@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * Process-wide cache of rounded-corner paths, keyed by geometry (size, radii, circle, stroke).
+ * Views which have same geometry will share same path instance, so caller MUST NOT modify
+ * the returned path.
+ */
+final class TheCompactRoundPathCache {
+	private static final int MAX_ENTRY_COUNT = 128;
+
+	private static final LruCache<Key, Path> cache = new LruCache<>(MAX_ENTRY_COUNT);
+
+	// Reusable key for lookup, and reusable rect for building path
+	private static final Key probe = new Key();
+	private static final RectF tmpRect = new RectF();
+
+	private TheCompactRoundPathCache() {
+	}
+
+	/**
+	 * Obtain immutable path which be used to clip the view with given size.
+	 */
+	static synchronized Path obtainClipPath(int w, int h, float[] radii, boolean isCircle) {
+		return obtain(w, h, radii, isCircle, 0f);
+	}
+
+	/**
+	 * Obtain immutable path which be used to draw border of the view with given size.
+	 *
+	 * @param inset Distance from view's bounds to the border path.
+	 */
+	static synchronized Path obtainBorderPath(int w, int h, float[] radii, boolean isCircle, float inset) {
+		return obtain(w, h, radii, isCircle, inset);
+	}
+
+	static synchronized void clear() {
+		cache.evictAll();
+	}
+
+	private static Path obtain(int w, int h, float[] radii, boolean isCircle, float inset) {
+		final Key probe = TheCompactRoundPathCache.probe;
+		probe.set(w, h, radii, isCircle, inset);
+
+		Path path = cache.get(probe);
+		if (path == null) {
+			path = new Path();
+			if (isCircle) {
+				path.addCircle(w / 2f, h / 2f, Math.min(w, h) / 2f - inset, Path.Direction.CCW);
+			}
+			else {
+				tmpRect.set(inset, inset, w - inset, h - inset);
+				path.addRoundRect(tmpRect, radii, Path.Direction.CCW);
+			}
+			cache.put(probe.copy(), path);
+		}
+		return path;
+	}
+
+	private static final class Key {
+		int w;
+		int h;
+		// Radii is ignored (null) for circle since it does not affect the shape
+		float[] radii;
+		boolean isCircle;
+		float inset;
+		int hash;
+
+		void set(int w, int h, float[] radii, boolean isCircle, float inset) {
+			this.w = w;
+			this.h = h;
+			this.radii = isCircle ? null : radii;
+			this.isCircle = isCircle;
+			this.inset = inset;
+
+			int hash = 31 * w + h;
+			hash = 31 * hash + Arrays.hashCode(this.radii);
+			hash = 31 * hash + (isCircle ? 1 : 0);
+			hash = 31 * hash + Float.floatToIntBits(inset);
+			this.hash = hash;
+		}
+
+		Key copy() {
+			final Key key = new Key();
+			key.w = w;
+			key.h = h;
+			key.radii = radii == null ? null : radii.clone();
+			key.isCircle = isCircle;
+			key.inset = inset;
+			key.hash = hash;
+			return key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (! (o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return w == other.w
+				&& h == other.h
+				&& isCircle == other.isCircle
+				&& inset == other.inset
+				&& Arrays.equals(radii, other.radii);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
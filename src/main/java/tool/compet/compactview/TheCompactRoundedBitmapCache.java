@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import tool.compet.core.DkLogcats;
+
+/**
+ * Process-wide LRU cache (bounded by bytes) of pre-rounded (and bordered) bitmaps.
+ * Key is (image identity, image matrix, width, height, radii, circle, stroke, stroke color),
+ * so a view which shows same image with same round-corner setting just draws a cached bitmap.
+ * Cached keys refer source image weakly, so the cache does not pin (uncounted) source images.
+ * Missing bitmap is rendered at background via `renderAsync()`, so no full-size bitmap is allocated at draw time.
+ *
+ * Must be accessed at main thread.
+ */
+final class TheCompactRoundedBitmapCache {
+	// Use 1/16 of max memory (in KB) for caching rounded bitmaps
+	private static final LruCache<Key, Bitmap> cache = new LruCache<Key, Bitmap>((int) (Runtime.getRuntime().maxMemory() >> 14)) {
+		@Override
+		protected int sizeOf(Key key, Bitmap bitmap) {
+			return bitmap.getAllocationByteCount() >> 10;
+		}
+	};
+
+	// Reusable key for lookup, its source is released after each lookup
+	private static final Key probe = new Key();
+	// Keys which are being rendered at background
+	private static final HashSet<Key> renderingKeys = new HashSet<>();
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private TheCompactRoundedBitmapCache() {
+	}
+
+	/**
+	 * Prepare lookup key, then call `get()` to access the cache.
+	 */
+	static void prepareKey(Bitmap source, float[] matrixValues, int w, int h, TheCompactFeatureRoundCorner feature) {
+		probe.set(source, matrixValues, w, h, feature);
+	}
+
+	/**
+	 * @return Cached bitmap, or null if not found (then `isRendering()` or `renderAsync()` must be called).
+	 */
+	static Bitmap get() {
+		final Bitmap rounded = cache.get(probe);
+		if (rounded != null) {
+			probe.source = null;
+		}
+		return rounded;
+	}
+
+	/**
+	 * @return true if bitmap of prepared key is being rendered (then nothing else must be called for the key).
+	 */
+	static boolean isRendering() {
+		if (renderingKeys.contains(probe)) {
+			probe.source = null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Render bitmap of prepared key at background, then put it into the cache and call `onRendered` at main thread.
+	 * Given renderer is called at background thread, so it must only use values which were taken before.
+	 */
+	static void renderAsync(int w, int h, Renderer renderer, Runnable onRendered) {
+		final Key key = probe.copy();
+		probe.source = null;
+		renderingKeys.add(key);
+
+		TheCompactImageLoader.execute(() -> {
+			Bitmap rounded = null;
+			try {
+				rounded = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+				renderer.render(new Canvas(rounded));
+			}
+			catch (Exception e) {
+				DkLogcats.error(TheCompactRoundedBitmapCache.class, e);
+				rounded = null;
+			}
+			final Bitmap result = rounded;
+			mainHandler.post(() -> {
+				renderingKeys.remove(key);
+				if (result != null) {
+					cache.put(key, result);
+					onRendered.run();
+				}
+			});
+		});
+	}
+
+	static void clear() {
+		cache.evictAll();
+	}
+
+	interface Renderer {
+		void render(Canvas canvas);
+	}
+
+	private static final class Key {
+		// Probe refers source strongly (during lookup), cached keys refer it weakly
+		Bitmap source;
+		WeakReference<Bitmap> sourceRef;
+		int generationId;
+		final float[] matrixValues = new float[9];
+		int w;
+		int h;
+		float[] radii;
+		boolean isCircle;
+		float strokeWidth;
+		int strokeColor;
+		int hash;
+
+		void set(Bitmap source, float[] matrixValues, int w, int h, TheCompactFeatureRoundCorner feature) {
+			this.source = source;
+			this.generationId = source.getGenerationId();
+			System.arraycopy(matrixValues, 0, this.matrixValues, 0, 9);
+			this.w = w;
+			this.h = h;
+			this.isCircle = feature.isCircle;
+			this.radii = isCircle ? null : feature.roundRadiusArr;
+			this.strokeWidth = feature.roundStrokeWidth;
+			this.strokeColor = strokeWidth > 0 ? feature.roundColor : 0;
+
+			int hash = System.identityHashCode(source);
+			hash = 31 * hash + generationId;
+			hash = 31 * hash + Arrays.hashCode(this.matrixValues);
+			hash = 31 * hash + w;
+			hash = 31 * hash + h;
+			hash = 31 * hash + Arrays.hashCode(radii);
+			hash = 31 * hash + (isCircle ? 1 : 0);
+			hash = 31 * hash + Float.floatToIntBits(strokeWidth);
+			hash = 31 * hash + strokeColor;
+			this.hash = hash;
+		}
+
+		Key copy() {
+			final Key key = new Key();
+			key.sourceRef = new WeakReference<>(source);
+			key.generationId = generationId;
+			System.arraycopy(matrixValues, 0, key.matrixValues, 0, 9);
+			key.w = w;
+			key.h = h;
+			key.radii = radii == null ? null : radii.clone();
+			key.isCircle = isCircle;
+			key.strokeWidth = strokeWidth;
+			key.strokeColor = strokeColor;
+			key.hash = hash;
+			return key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (! (o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			final Bitmap source = source();
+			return source != null
+				&& source == other.source()
+				&& generationId == other.generationId
+				&& w == other.w
+				&& h == other.h
+				&& isCircle == other.isCircle
+				&& strokeWidth == other.strokeWidth
+				&& strokeColor == other.strokeColor
+				&& Arrays.equals(matrixValues, other.matrixValues)
+				&& Arrays.equals(radii, other.radii);
+		}
+
+		private Bitmap source() {
+			return source != null ? source : (sourceRef != null ? sourceRef.get() : null);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import tool.compet.core.DkLogcats;
+
+/**
+ * Computes text layout (measure, shaping) via `PrecomputedTextCompat` at background, then sets result to
+ * the text view at main thread. Results of plain (non-spanned) text are cached in a LRU cache
+ * which is keyed by (text, metrics params of the view).
+ *
+ * Must be called at main thread.
+ */
+final class TheCompactTextPrecomputer {
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "DkCompactTextPrecomputer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1);
+		return thread;
+	});
+
+	// Cache up to 512K chars of precomputed text
+	private static final LruCache<Key, PrecomputedTextCompat> cache = new LruCache<Key, PrecomputedTextCompat>(1 << 19) {
+		@Override
+		protected int sizeOf(Key key, PrecomputedTextCompat value) {
+			return Math.max(1, key.text.length());
+		}
+	};
+
+	// Text view -> its pending request (request refers the view weakly, so the view can be collected)
+	private static final Map<TextView, Request> pendingRequests = new WeakHashMap<>();
+
+	private TheCompactTextPrecomputer() {
+	}
+
+	/**
+	 * Precompute given text with metrics params of the view at background, then set it to the view.
+	 * Current text of the view is kept until the result is ready.
+	 */
+	static void setTextAsync(TextView view, CharSequence text) {
+		cancel(view);
+
+		if (text == null || text.length() == 0) {
+			view.setText(text);
+			return;
+		}
+
+		final PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(view);
+		// Spans can be changed by caller, so only cache plain text
+		final Key key = text instanceof String ? new Key((String) text, params) : null;
+		final PrecomputedTextCompat cached = key != null ? cache.get(key) : null;
+
+		if (cached != null) {
+			apply(view, text, cached);
+			return;
+		}
+
+		final Request request = new Request(view, text, params, key);
+		pendingRequests.put(view, request);
+		request.future = executor.submit(request);
+	}
+
+	/**
+	 * Cancel pending request of given view. Call this before set text to the view synchronously.
+	 */
+	static void cancel(TextView view) {
+		final Request request = pendingRequests.remove(view);
+		if (request != null) {
+			request.cancel();
+		}
+	}
+
+	private static void apply(TextView view, CharSequence text, PrecomputedTextCompat precomputedText) {
+		// Params of the view was changed (text size, font...) while precomputing
+		if (precomputedText.getParams().equals(TextViewCompat.getTextMetricsParams(view))) {
+			TextViewCompat.setPrecomputedText(view, precomputedText);
+		}
+		else {
+			view.setText(text);
+		}
+	}
+
+	private static final class Request implements Runnable {
+		private final WeakReference<TextView> viewRef;
+		private final CharSequence text;
+		private final PrecomputedTextCompat.Params params;
+		private final Key key;
+		private volatile boolean cancelled;
+		private Future<?> future;
+
+		Request(TextView view, CharSequence text, PrecomputedTextCompat.Params params, Key key) {
+			this.viewRef = new WeakReference<>(view);
+			this.text = text;
+			this.params = params;
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			if (this.cancelled) {
+				return;
+			}
+			try {
+				final PrecomputedTextCompat result = PrecomputedTextCompat.create(this.text, this.params);
+				mainHandler.post(() -> deliver(result));
+			}
+			catch (Exception e) {
+				DkLogcats.error(TheCompactTextPrecomputer.class, e);
+				mainHandler.post(() -> deliver(null));
+			}
+		}
+
+		private void deliver(PrecomputedTextCompat result) {
+			final TextView view = this.viewRef.get();
+			if (this.cancelled || view == null || pendingRequests.get(view) != this) {
+				return;
+			}
+			pendingRequests.remove(view);
+
+			if (result == null) {
+				view.setText(this.text);
+				return;
+			}
+			if (this.key != null) {
+				cache.put(this.key, result);
+			}
+			apply(view, this.text, result);
+		}
+
+		void cancel() {
+			this.cancelled = true;
+			if (this.future != null) {
+				this.future.cancel(false);
+			}
+		}
+	}
+
+	private static final class Key {
+		private final String text;
+		private final PrecomputedTextCompat.Params params;
+		private final int hash;
+
+		Key(String text, PrecomputedTextCompat.Params params) {
+			this.text = text;
+			this.params = params;
+			this.hash = 31 * text.hashCode() + params.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (! (o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return this.hash == other.hash && this.text.equals(other.text) && this.params.equals(other.params);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import android.view.animation.Interpolator;
+
+import java.util.HashMap;
+
+import tool.compet.animation.DkLookupTableInterpolator;
+
+/**
+ * Samples easing curves (elastic, spring, cubic-bezier) into lookup tables one time, so at runtime
+ * interpolation is only a table lookup with linear interpolation.
+ * Interpolators are stateless, so they are cached and shared per curve.
+ */
+final class TheInterpolatorTables {
+	// Number of samples in a table (include both 0 and 1)
+	private static final int TABLE_SIZE = 201;
+
+	private static final HashMap<String, Interpolator> cache = new HashMap<>();
+
+	private TheInterpolatorTables() {
+	}
+
+	interface Curve {
+		/**
+		 * @param t Fraction in [0, 1].
+		 */
+		float valueAt(float t);
+	}
+
+	// Ease-out elastic curve, see `elasticOut()`
+	static final Curve ELASTIC_OUT = t -> {
+		final double period = 0.3;
+		return (float) (Math.pow(2, -10 * t) * Math.sin((t - period / 4) * (2 * Math.PI) / period) + 1);
+	};
+
+	/**
+	 * Ease-out elastic: goes over the end value, then oscillates (with decreasing amplitude) to it.
+	 */
+	static Interpolator elasticOut() {
+		return obtain("elasticOut", ELASTIC_OUT);
+	}
+
+	/**
+	 * Under-damped spring which moves from 0 to 1, and settles at end of the animation.
+	 *
+	 * @param dampingRatio Damping ratio in (0, 1), smaller value makes more bounces.
+	 */
+	static Interpolator spring(float dampingRatio) {
+		return obtain("spring:" + dampingRatio, springCurve(dampingRatio));
+	}
+
+	static Curve springCurve(float dampingRatio) {
+		return t -> {
+			final double zeta = dampingRatio;
+			// Natural frequency which makes the amplitude decays to 0.1% at t = 1
+			final double omega = Math.log(1000) / zeta;
+			final double omegaD = omega * Math.sqrt(1 - zeta * zeta);
+			final double decay = Math.exp(-zeta * omega * t);
+			return (float) (1 - decay * (Math.cos(omegaD * t) + zeta * omega / omegaD * Math.sin(omegaD * t)));
+		};
+	}
+
+	/**
+	 * Same curve as css `cubic-bezier(x1, y1, x2, y2)`, x1 and x2 must be in [0, 1].
+	 */
+	static Interpolator cubicBezier(float x1, float y1, float x2, float y2) {
+		return obtain("cubicBezier:" + x1 + ',' + y1 + ',' + x2 + ',' + y2, cubicBezierCurve(x1, y1, x2, y2));
+	}
+
+	static Curve cubicBezierCurve(float x1, float y1, float x2, float y2) {
+		return x -> {
+			// Find t of bezier where x(t) = x, x(t) is monotonic since x1, x2 are in [0, 1]
+			float lo = 0f, hi = 1f, t = x;
+			for (int i = 0; i < 32; ++i) {
+				final float bx = bezier(t, x1, x2);
+				if (Math.abs(bx - x) < 1e-6f) {
+					break;
+				}
+				if (bx < x) {
+					lo = t;
+				}
+				else {
+					hi = t;
+				}
+				t = (lo + hi) / 2;
+			}
+			return bezier(t, y1, y2);
+		};
+	}
+
+	/**
+	 * Sample given curve into a table, and cache the interpolator under given name.
+	 */
+	static synchronized Interpolator obtain(String name, Curve curve) {
+		Interpolator interpolator = cache.get(name);
+		if (interpolator == null) {
+			cache.put(name, interpolator = new DkLookupTableInterpolator(sample(curve)));
+		}
+		return interpolator;
+	}
+
+	/**
+	 * Sample given curve at `TABLE_SIZE` evenly spaced fractions, last value is always 1.
+	 */
+	static float[] sample(Curve curve) {
+		final float[] table = new float[TABLE_SIZE];
+		final int last = TABLE_SIZE - 1;
+		for (int index = 0; index < last; ++index) {
+			table[index] = curve.valueAt((float) index / last);
+		}
+		// Make sure animation ends exactly at end value
+		table[last] = 1f;
+		return table;
+	}
+
+	// Bezier with p0 = 0, p3 = 1 at one axis
+	private static float bezier(float t, float p1, float p2) {
+		final float u = 1 - t;
+		return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+	}
+}
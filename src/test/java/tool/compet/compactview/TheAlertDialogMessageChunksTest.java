@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TheAlertDialogMessageChunksTest {
+	private static final String EMOJI = "\uD83D\uDE00"; // surrogate pair
+
+	@Test
+	public void setText_splitByLine() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(8);
+		chunks.setText("ab\n\ncd");
+
+		assertChunks(chunks, "ab", "", "cd");
+	}
+
+	@Test
+	public void setText_longLineIsLimited() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(4);
+		chunks.setText("abcdefghij");
+
+		assertChunks(chunks, "abcd", "efgh", "ij");
+	}
+
+	@Test
+	public void setText_lineOfChunkSizeMakesNoEmptyChunk() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(4);
+		chunks.setText("abcd\nef");
+
+		assertChunks(chunks, "abcd", "ef");
+	}
+
+	@Test
+	public void setText_surrogatePairIsNotSplit() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(4);
+		chunks.setText("abc" + EMOJI + "de");
+
+		assertChunks(chunks, "abc", EMOJI + "de");
+		for (int index = 0; index < chunks.size(); ++index) {
+			final CharSequence chunk = chunks.get(index);
+			assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)));
+			assertFalse(Character.isLowSurrogate(chunk.charAt(0)));
+		}
+	}
+
+	@Test
+	public void appendText_continuesOpenLastChunk() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(8);
+		chunks.setText("ab\ncd");
+		chunks.appendText("ef");
+		chunks.appendText("g\nh");
+
+		assertChunks(chunks, "ab", "cdefg", "h");
+	}
+
+	@Test
+	public void appendText_afterLineBreakStartsNewChunk() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(8);
+		chunks.setText("ab\n");
+		chunks.appendText("cd");
+
+		assertChunks(chunks, "ab", "cd");
+	}
+
+	@Test
+	public void appendText_resplitsOpenLastChunk() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(4);
+		chunks.setText("abc");
+		chunks.appendText("defgh");
+
+		assertChunks(chunks, "abcd", "efgh");
+
+		// Full chunk at end of the text is still open, its line break is skipped
+		chunks.appendText("\nij");
+
+		assertChunks(chunks, "abcd", "efgh", "ij");
+	}
+
+	@Test
+	public void appendText_surrogatePairAcrossAppends() {
+		final TheAlertDialogMessageChunks chunks = new TheAlertDialogMessageChunks(4);
+		chunks.setText("abc" + EMOJI.charAt(0));
+		chunks.appendText(EMOJI.charAt(1) + "d");
+
+		assertChunks(chunks, "abc", EMOJI + "d");
+	}
+
+	@Test
+	public void appendText_sameAsSetWholeText() {
+		final String text = "line1\n" + "x".repeat(10) + EMOJI + "y\n\nlast" + EMOJI;
+		final TheAlertDialogMessageChunks whole = new TheAlertDialogMessageChunks(4);
+		whole.setText(text);
+
+		final TheAlertDialogMessageChunks appended = new TheAlertDialogMessageChunks(4);
+		appended.setText("");
+		for (int index = 0; index < text.length(); index += 3) {
+			appended.appendText(text.substring(index, Math.min(index + 3, text.length())));
+		}
+
+		assertEquals(whole.size(), appended.size());
+		for (int index = 0; index < whole.size(); ++index) {
+			assertEquals(whole.get(index).toString(), appended.get(index).toString());
+		}
+	}
+
+	private static void assertChunks(TheAlertDialogMessageChunks chunks, String... expected) {
+		assertEquals(expected.length, chunks.size());
+		for (int index = 0; index < expected.length; ++index) {
+			assertEquals(expected[index], chunks.get(index).toString());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TheCompactParcelsTest {
+	@Test
+	public void resIds_roundTrip() {
+		final int[] resIds = {
+			0, // unset
+			-1, // View.NO_ID
+			0x7f0a0012, // app id
+			0x7f000000, // smallest app id
+			0x7fffffff, // largest app id
+			0x01040000, // framework id (android.R.string.ok)
+			0x0104000a,
+			0x02010001, // other package
+			Integer.MIN_VALUE,
+		};
+		final byte[] coded = TheCompactParcels.encodeResIds(resIds);
+
+		assertArrayEquals(resIds, TheCompactParcels.decodeResIds(coded, resIds.length));
+	}
+
+	@Test
+	public void resIds_size() {
+		// Unset ids take 1 byte
+		assertEquals(1, TheCompactParcels.encodeResIds(0).length);
+		assertEquals(1, TheCompactParcels.encodeResIds(-1).length);
+		// Usual app ids (type < 0x20, entry < 0x2000) take 3 bytes
+		assertEquals(3, TheCompactParcels.encodeResIds(0x7f0a0012).length);
+		// Framework ids are not mapped, so they take 5 bytes
+		assertEquals(5, TheCompactParcels.encodeResIds(0x01040000).length);
+		assertEquals(0, TheCompactParcels.encodeResIds().length);
+	}
+
+	@Test
+	public void resIds_decodeEach() {
+		for (int resId : new int[] {0, -1, 0x7f010001, 0x01040000}) {
+			final byte[] coded = TheCompactParcels.encodeResIds(resId);
+			assertEquals(resId, TheCompactParcels.decodeResIds(coded, 1)[0]);
+		}
+	}
+
+	@Test
+	public void flags_roundTrip() {
+		for (int bit = 0; bit < 32; ++bit) {
+			final int flag = 1 << bit;
+			final int flags = TheCompactParcels.setFlag(0, flag, true);
+
+			assertEquals(flag, flags);
+			assertTrue(TheCompactParcels.isFlagSet(flags, flag));
+			assertFalse(TheCompactParcels.isFlagSet(TheCompactParcels.setFlag(flags, flag, false), flag));
+		}
+	}
+
+	@Test
+	public void flags_otherBitsKept() {
+		final int flagA = 1;
+		final int flagB = 1 << 4;
+		final int flagC = 1 << 10;
+
+		int flags = TheCompactParcels.setFlag(0, flagA, true);
+		flags = TheCompactParcels.setFlag(flags, flagB, false);
+		flags = TheCompactParcels.setFlag(flags, flagC, true);
+
+		assertTrue(TheCompactParcels.isFlagSet(flags, flagA));
+		assertFalse(TheCompactParcels.isFlagSet(flags, flagB));
+		assertTrue(TheCompactParcels.isFlagSet(flags, flagC));
+
+		flags = TheCompactParcels.setFlag(flags, flagA, false);
+
+		assertFalse(TheCompactParcels.isFlagSet(flags, flagA));
+		assertTrue(TheCompactParcels.isFlagSet(flags, flagC));
+		assertEquals(flagC, flags);
+	}
+}
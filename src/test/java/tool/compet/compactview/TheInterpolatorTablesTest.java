@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017-2021 DarkCompet. All rights reserved.
+ */
+
+package tool.compet.compactview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TheInterpolatorTablesTest {
+	private static final float EPSILON = 1e-4f;
+
+	@Test
+	public void cubicBezier_endpoints() {
+		final float[] table = TheInterpolatorTables.sample(TheInterpolatorTables.cubicBezierCurve(0.25f, 0.1f, 0.25f, 1f));
+
+		assertEquals(0f, table[0], EPSILON);
+		assertEquals(1f, table[table.length - 1], 0f);
+	}
+
+	@Test
+	public void cubicBezier_monotonic() {
+		final float[][] points = {
+			{0.25f, 0.1f, 0.25f, 1f}, // ease
+			{0.42f, 0f, 1f, 1f}, // ease-in
+			{0f, 0f, 0.58f, 1f}, // ease-out
+			{0.42f, 0f, 0.58f, 1f}, // ease-in-out
+			{0f, 0f, 1f, 1f}, // linear
+		};
+		for (float[] p : points) {
+			final float[] table = TheInterpolatorTables.sample(TheInterpolatorTables.cubicBezierCurve(p[0], p[1], p[2], p[3]));
+			for (int index = 1; index < table.length; ++index) {
+				assertTrue(table[index] >= table[index - 1] - EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void cubicBezier_linear() {
+		final TheInterpolatorTables.Curve curve = TheInterpolatorTables.cubicBezierCurve(0f, 0f, 1f, 1f);
+
+		for (float x = 0f; x <= 1f; x += 0.05f) {
+			assertEquals(x, curve.valueAt(x), 1e-3f);
+		}
+	}
+
+	@Test
+	public void cubicBezier_matchesCss() {
+		// Css `ease-in-out` is symmetric around its middle
+		final TheInterpolatorTables.Curve curve = TheInterpolatorTables.cubicBezierCurve(0.42f, 0f, 0.58f, 1f);
+
+		assertEquals(0.5f, curve.valueAt(0.5f), 1e-3f);
+		assertEquals(1f - curve.valueAt(0.2f), curve.valueAt(0.8f), 1e-3f);
+	}
+
+	@Test
+	public void elasticOut_endpoints() {
+		final float[] table = TheInterpolatorTables.sample(TheInterpolatorTables.ELASTIC_OUT);
+
+		assertEquals(0f, table[0], EPSILON);
+		assertEquals(1f, table[table.length - 1], 0f);
+		// Value before end is already settled, so the forced end value does not jump
+		assertEquals(1f, table[table.length - 2], 1e-2f);
+	}
+
+	@Test
+	public void elasticOut_overshoots() {
+		final float[] table = TheInterpolatorTables.sample(TheInterpolatorTables.ELASTIC_OUT);
+
+		float max = 0f;
+		for (float value : table) {
+			max = Math.max(max, value);
+		}
+		assertTrue(max > 1f);
+	}
+}